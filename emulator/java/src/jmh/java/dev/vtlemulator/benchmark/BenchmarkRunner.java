@@ -0,0 +1,81 @@
+package dev.vtlemulator.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Entry point of the {@code benchmark} Maven profile:
+ *
+ * <pre>
+ * mvn -Pbenchmark -DskipTests verify
+ * mvn -Pbenchmark -DskipTests verify -Dbenchmark.args="CorpusBenchmark -p testCase=photo-album"
+ * </pre>
+ *
+ * Accepts the regular JMH command line and adds the defaults we want for regression tracking:
+ * - every vtl-test-cases folder as a {@code testCase} parameter (unless -p testCase=... is given)
+ * - the GC profiler for allocation rates (unless other profilers are given)
+ * - JSON results written to target/jmh/results.json (unless -rf/-rff are given)
+ *
+ * Benchmarks with a {@code bodySize} parameter are summarized by {@link ScalingReport} at the end.
+ */
+public final class BenchmarkRunner {
+    public static final String OUTPUT_PROPERTY = "benchmark.output";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListProfilers()
+                || commandLine.shouldListResultFormats() || commandLine.shouldListWithParams()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        Path outputDir = Paths.get(System.getProperty(OUTPUT_PROPERTY, "target/jmh"));
+        Files.createDirectories(outputDir);
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+
+        if (!commandLine.getParameter(CorpusBenchmark.TEST_CASE_PARAM).hasValue()) {
+            options.param(CorpusBenchmark.TEST_CASE_PARAM, TestCaseCorpus.names().toArray(new String[0]));
+        }
+        if (commandLine.getProfilers().isEmpty()) {
+            options.addProfiler(GCProfiler.class);
+        }
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            options.result(outputDir.resolve("results.json").toString());
+        }
+
+        // Forked JVMs need to find the corpus (and the standalone jar for StartupBenchmark) as well
+        List<String> jvmArgs = new ArrayList<>();
+        if (commandLine.getJvmArgsAppend().hasValue()) {
+            jvmArgs.addAll(commandLine.getJvmArgsAppend().get());
+        }
+        jvmArgs.add("-D" + TestCaseCorpus.CORPUS_PROPERTY + "=" + TestCaseCorpus.directory().toAbsolutePath());
+        for (String property : new String[] {StartupBenchmark.JAR_PROPERTY, StartupBenchmark.ARCHIVE_PROPERTY}) {
+            if (System.getProperty(property) != null) {
+                jvmArgs.add("-D" + property + "=" + System.getProperty(property));
+            }
+        }
+        options.jvmArgsAppend(jvmArgs.toArray(new String[0]));
+
+        Collection<RunResult> results = new Runner(options.build()).run();
+        ScalingReport.print(results, System.out);
+    }
+}
@@ -0,0 +1,54 @@
+package dev.vtlemulator.benchmark;
+
+import dev.vtlemulator.engine.VTLProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders every folder of the vtl-test-cases corpus through {@link VTLProcessor#process(String, String, String)}.
+ *
+ * The {@code testCase} parameter is filled in at launch time by {@link BenchmarkRunner} with the
+ * folder names found on disk, so new test cases are benchmarked without touching this class.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CorpusBenchmark {
+    public static final String TEST_CASE_PARAM = "testCase";
+
+    @Param({"photo-album"})
+    public String testCase;
+
+    private VTLProcessor processor;
+    private String template;
+    private String input;
+    private String context;
+
+    @Setup
+    public void setUp() {
+        TestCaseCorpus.TestCase loaded = TestCaseCorpus.load(testCase);
+        processor = new VTLProcessor();
+        template = loaded.getTemplate();
+        input = loaded.getInput();
+        context = loaded.getContext();
+    }
+
+    @Benchmark
+    public String process() {
+        return processor.process(template, input, context);
+    }
+}
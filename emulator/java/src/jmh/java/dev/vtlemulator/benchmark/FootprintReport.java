@@ -0,0 +1,108 @@
+package dev.vtlemulator.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.vtlemulator.engine.CompactJson;
+import dev.vtlemulator.engine.ShapeCache;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Heap footprint of a parsed request body: retained size (JOL object graph walk) of the
+ * LinkedHashMap/ArrayList tree that {@code readValue(body, Map.class)} builds, of the
+ * {@link CompactJson} tree, and of the compact tree with a warmed {@link ShapeCache} (the cache
+ * itself is not counted, as it is shared by all requests), for the photo-album and complex-foreach ("users") payloads at several
+ * sizes, relative to the size of the JSON text.
+ *
+ * <pre>
+ * mvn -Pbenchmark -DskipTests verify -Dbenchmark.main=dev.vtlemulator.benchmark.FootprintReport
+ * mvn -Pbenchmark -DskipTests verify -Dbenchmark.main=dev.vtlemulator.benchmark.FootprintReport \
+ *     -Dbenchmark.args="1KB,100KB,10MB"
+ * </pre>
+ *
+ * Argument: comma separated body sizes (default 10KB,1MB,10MB). Results are also written to
+ * target/jmh/footprint.json. Allocation and time per parse are measured by {@link InputParseBenchmark}.
+ */
+public final class FootprintReport {
+    private static final String[] PAYLOADS = {"photo-album", "users"};
+
+    private FootprintReport() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String[] sizes = (args.length > 0 ? args[0] : "10KB,1MB,10MB").split(",");
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<Row> rows = new ArrayList<>();
+        for (String payload : PAYLOADS) {
+            for (String size : sizes) {
+                String body = InputParseBenchmark.body(payload, PayloadGenerator.parseSize(size));
+                Row row = new Row(payload, size, body.getBytes(StandardCharsets.UTF_8).length);
+                row.linkedBytes = GraphLayout.parseInstance(objectMapper.readValue(body, Map.class)).totalSize();
+                row.compactBytes = GraphLayout.parseInstance(CompactJson.readObject(objectMapper, body)).totalSize();
+                ShapeCache shapes = new ShapeCache();
+                CompactJson.readObject(objectMapper, body, shapes);
+                row.sharedBytes = GraphLayout.parseInstance(CompactJson.readObject(objectMapper, body, shapes)).totalSize();
+                rows.add(row);
+            }
+        }
+        print(System.out, rows);
+        Path output = Paths.get(System.getProperty(BenchmarkRunner.OUTPUT_PROPERTY, "target/jmh"));
+        Files.createDirectories(output);
+        try (Writer writer = Files.newBufferedWriter(output.resolve("footprint.json"))) {
+            writer.write(json(rows));
+        }
+    }
+
+    private static void print(PrintStream out, List<Row> rows) {
+        out.println();
+        out.println("Retained heap of the parsed body (bytes, and multiple of the JSON size)");
+        out.println(String.format(Locale.ROOT, "  %-12s %8s %12s %14s %6s %14s %6s %8s %14s %6s %8s", "payload",
+                "size", "json", "linked", "x", "compact", "x", "saved", "shared", "x", "saved"));
+        for (Row row : rows) {
+            out.println(String.format(Locale.ROOT, "  %-12s %8s %12d %14d %6.2f %14d %6.2f %7.1f%% %14d %6.2f %7.1f%%",
+                    row.payload, row.size, row.jsonBytes, row.linkedBytes, (double) row.linkedBytes / row.jsonBytes,
+                    row.compactBytes, (double) row.compactBytes / row.jsonBytes,
+                    100.0 * (row.linkedBytes - row.compactBytes) / row.linkedBytes,
+                    row.sharedBytes, (double) row.sharedBytes / row.jsonBytes,
+                    100.0 * (row.linkedBytes - row.sharedBytes) / row.linkedBytes));
+        }
+    }
+
+    private static String json(List<Row> rows) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < rows.size(); i++) {
+            Row row = rows.get(i);
+            json.append(i > 0 ? "," : "").append("{\"payload\":\"").append(row.payload)
+                .append("\",\"size\":\"").append(row.size)
+                .append("\",\"jsonBytes\":").append(row.jsonBytes)
+                .append(",\"linkedBytes\":").append(row.linkedBytes)
+                .append(",\"compactBytes\":").append(row.compactBytes)
+                .append(",\"sharedBytes\":").append(row.sharedBytes).append('}');
+        }
+        return json.append("]\n").toString();
+    }
+
+    private static final class Row {
+        final String payload;
+        final String size;
+        final long jsonBytes;
+        long linkedBytes;
+        long compactBytes;
+        long sharedBytes;
+
+        Row(String payload, String size, long jsonBytes) {
+            this.payload = payload;
+            this.size = size;
+            this.jsonBytes = jsonBytes;
+        }
+    }
+}
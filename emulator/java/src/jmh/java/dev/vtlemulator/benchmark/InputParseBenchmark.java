@@ -0,0 +1,71 @@
+package dev.vtlemulator.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.vtlemulator.engine.CompactJson;
+import dev.vtlemulator.engine.ShapeCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time and (with the default GC profiler) allocation of parsing a request body into
+ * LinkedHashMap/ArrayList ({@code linked}, the default), {@link CompactJson} maps and lists
+ * ({@code compact}), compact ones sharing key arrays through a warmed {@link ShapeCache}
+ * ({@code shared}), or compact ones with lazy numbers ({@code lazy}). {@link FootprintReport}
+ * reports the retained size of the first three.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class InputParseBenchmark {
+    @Param({"linked", "compact", "shared", "lazy"})
+    public String representation;
+
+    @Param({"photo-album", "users"})
+    public String payload;
+
+    @Param({"10KB", "1MB"})
+    public String bodySize;
+
+    private ObjectMapper objectMapper;
+    private String body;
+    private ShapeCache shapes;
+
+    static String body(String payload, int size) {
+        switch (payload) {
+            case "photo-album":
+                return PayloadGenerator.photoAlbum(size);
+            case "users":
+                return PayloadGenerator.users(size, 4);
+            default:
+                throw new IllegalArgumentException("Unknown payload: " + payload);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        body = body(payload, PayloadGenerator.parseSize(bodySize));
+        shapes = "shared".equals(representation) ? new ShapeCache() : null;
+    }
+
+    @Benchmark
+    public Map<String, Object> parse() throws Exception {
+        return "linked".equals(representation) ? objectMapper.readValue(body, Map.class)
+                : CompactJson.readObject(objectMapper, body, shapes, "lazy".equals(representation));
+    }
+}
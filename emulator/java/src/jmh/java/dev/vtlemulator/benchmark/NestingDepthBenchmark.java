@@ -0,0 +1,51 @@
+package dev.vtlemulator.benchmark;
+
+import dev.vtlemulator.engine.VTLProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the body size fixed and varies how deeply it is nested. The template walks the first item
+ * with $input.path and re-serializes the whole body with $input.json('$'), which is where deep
+ * bodies hurt the parse, serialize and minify steps.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NestingDepthBenchmark {
+    static final String TEMPLATE = "{\"depth\": $input.path('$.meta.depth'), \"first\": \"$input.path('$.items[0].name')\", \"body\": $input.json('$')}";
+
+    @Param({"1", "4", "16", "64"})
+    public int depth;
+
+    @Param({"100KB"})
+    public String bodySize;
+
+    private VTLProcessor processor;
+    private String body;
+
+    @Setup
+    public void setUp() {
+        processor = new VTLProcessor();
+        body = PayloadGenerator.nested(PayloadGenerator.parseSize(bodySize), depth);
+    }
+
+    @Benchmark
+    public String process() {
+        return processor.process(TEMPLATE, body, "{}");
+    }
+}
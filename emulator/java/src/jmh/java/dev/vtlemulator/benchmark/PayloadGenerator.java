@@ -0,0 +1,128 @@
+package dev.vtlemulator.benchmark;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates synthetic request bodies of a given size for the scaling benchmarks.
+ *
+ * The bodies follow the schemas of the photo-album and complex-foreach test cases so the corpus
+ * templates can render them unchanged. Generation is seeded, so a given size always produces the
+ * same body across runs.
+ */
+public final class PayloadGenerator {
+    private static final String[] FIRST_NAMES = {"Saanvi", "Richard", "Mary", "Wei", "Ana", "Kofi", "Lena", "Omar"};
+    private static final String[] LAST_NAMES = {"Sarkar", "Roe", "Major", "Chen", "Silva", "Mensah", "Vogel", "Haddad"};
+    private static final String[] ROLES = {"admin", "user", "editor", "viewer", "auditor", "owner"};
+
+    private PayloadGenerator() {
+    }
+
+    /**
+     * Parses sizes such as "512B", "10KB" or "10MB" into a byte count.
+     */
+    public static int parseSize(String size) {
+        String value = size.trim().toUpperCase(Locale.ROOT);
+        if (value.endsWith("MB")) {
+            return Integer.parseInt(value.substring(0, value.length() - 2)) * 1024 * 1024;
+        } else if (value.endsWith("KB")) {
+            return Integer.parseInt(value.substring(0, value.length() - 2)) * 1024;
+        } else if (value.endsWith("B")) {
+            return Integer.parseInt(value.substring(0, value.length() - 1));
+        }
+        return Integer.parseInt(value);
+    }
+
+    /**
+     * photo-album body: {"photos": {"page": 1, ..., "photo": [...]}} with as many photos as needed
+     * to reach targetBytes.
+     */
+    public static String photoAlbum(int targetBytes) {
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder(targetBytes + 512);
+        json.append("{\"photos\":{\"page\":1,\"pages\":\"1234\",\"perpage\":100,\"total\":\"123398\",\"photo\":[");
+        int id = 0;
+        do {
+            if (id > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"").append(10000000000L + id).append('"')
+                .append(",\"owner\":\"").append(random.nextInt(100000000)).append("@A12\"")
+                .append(",\"photographer_first_name\":\"").append(pick(random, FIRST_NAMES)).append('"')
+                .append(",\"photographer_last_name\":\"").append(pick(random, LAST_NAMES)).append('"')
+                .append(",\"secret\":\"").append(Integer.toHexString(random.nextInt())).append('"')
+                .append(",\"server\":\"").append(1000 + random.nextInt(9000)).append('"')
+                .append(",\"farm\":").append(1 + random.nextInt(9))
+                .append(",\"title\":\"Sample photo ").append(id + 1).append('"')
+                .append(",\"ispublic\":").append(random.nextBoolean())
+                .append(",\"isfriend\":").append(random.nextBoolean())
+                .append(",\"isfamily\":").append(random.nextBoolean())
+                .append('}');
+            id++;
+        } while (json.length() < targetBytes - 3);
+        json.append("]}}");
+        return json.toString();
+    }
+
+    /**
+     * complex-foreach body: {"users": [{"id", "name", "roles": [...], "permissions": {...}}]}
+     * with rolesPerUser roles per user and as many users as needed to reach targetBytes.
+     */
+    public static String users(int targetBytes, int rolesPerUser) {
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder(targetBytes + 512);
+        json.append("{\"users\":[");
+        int id = 0;
+        do {
+            if (id > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"").append(id + 1).append('"')
+                .append(",\"name\":\"").append(pick(random, FIRST_NAMES)).append(' ').append(pick(random, LAST_NAMES)).append('"')
+                .append(",\"roles\":[");
+            for (int r = 0; r < rolesPerUser; r++) {
+                if (r > 0) {
+                    json.append(',');
+                }
+                json.append('"').append(ROLES[r % ROLES.length]).append('"');
+            }
+            json.append("],\"permissions\":{\"read\":true,\"write\":").append(random.nextBoolean())
+                .append(",\"delete\":").append(random.nextBoolean()).append("}}");
+            id++;
+        } while (json.length() < targetBytes - 2);
+        json.append("]}");
+        return json.toString();
+    }
+
+    /**
+     * Nested body: {"meta": {"depth": depth}, "items": [...]} where every item is a chain of
+     * depth nested objects. Items are added until the body reaches targetBytes.
+     */
+    public static String nested(int targetBytes, int depth) {
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder(targetBytes + 512);
+        json.append("{\"meta\":{\"depth\":").append(depth).append("},\"items\":[");
+        int id = 0;
+        do {
+            if (id > 0) {
+                json.append(',');
+            }
+            for (int level = 0; level < depth; level++) {
+                json.append("{\"id\":").append(id).append(",\"level\":").append(level)
+                    .append(",\"name\":\"").append(pick(random, FIRST_NAMES)).append('"')
+                    .append(",\"child\":");
+            }
+            json.append("{\"value\":").append(random.nextDouble()).append('}');
+            for (int level = 0; level < depth; level++) {
+                json.append('}');
+            }
+            id++;
+        } while (json.length() < targetBytes - 2);
+        json.append("]}");
+        return json.toString();
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,70 @@
+package dev.vtlemulator.benchmark;
+
+import dev.vtlemulator.engine.VTLProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders synthetic bodies from 1 KB to 10 MB through the photo-album and complex-foreach corpus
+ * templates, plus a passthrough template ($input.json('$')), to show how latency and allocation
+ * scale with the body size. {@link BenchmarkRunner} prints a per-size summary after the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class PayloadScalingBenchmark {
+    static final String PASSTHROUGH_TEMPLATE = "{\"count\": $input.path('$.users').size(), \"body\": $input.json('$')}";
+
+    @Param({"photo-album", "complex-foreach", "passthrough"})
+    public String template;
+
+    @Param({"1KB", "10KB", "100KB", "1MB", "10MB"})
+    public String bodySize;
+
+    private VTLProcessor processor;
+    private String templateText;
+    private String body;
+    private String context;
+
+    @Setup
+    public void setUp() {
+        int size = PayloadGenerator.parseSize(bodySize);
+        switch (template) {
+            case "photo-album":
+                templateText = TestCaseCorpus.load("photo-album").getTemplate();
+                body = PayloadGenerator.photoAlbum(size);
+                break;
+            case "complex-foreach":
+                templateText = TestCaseCorpus.load("complex-foreach").getTemplate();
+                body = PayloadGenerator.users(size, 4);
+                break;
+            case "passthrough":
+                templateText = PASSTHROUGH_TEMPLATE;
+                body = PayloadGenerator.users(size, 4);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown template: " + template);
+        }
+        processor = new VTLProcessor();
+        context = "{}";
+    }
+
+    @Benchmark
+    public String process() {
+        return processor.process(templateText, body, context);
+    }
+}
@@ -0,0 +1,93 @@
+package dev.vtlemulator.benchmark;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summarizes average-time results that have a {@code bodySize} parameter: per body size it prints
+ * the cost per byte of body and the scaling exponent against the previous size. An exponent close
+ * to 1 means linear scaling, anything clearly above 1 points at non-linear behavior.
+ */
+public final class ScalingReport {
+    public static final String SIZE_PARAM = "bodySize";
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    private ScalingReport() {
+    }
+
+    public static void print(Collection<RunResult> results, PrintStream out) {
+        Map<String, List<RunResult>> series = new TreeMap<>();
+        for (RunResult result : results) {
+            if (result.getParams().getMode() != Mode.AverageTime || result.getParams().getParam(SIZE_PARAM) == null) {
+                continue;
+            }
+            series.computeIfAbsent(seriesName(result), name -> new ArrayList<>()).add(result);
+        }
+        if (series.isEmpty()) {
+            return;
+        }
+
+        out.println();
+        out.println("Scaling by body size (exponent = log(time ratio) / log(size ratio), 1.0 is linear)");
+        for (Map.Entry<String, List<RunResult>> entry : series.entrySet()) {
+            List<RunResult> points = entry.getValue();
+            points.sort(Comparator.comparingInt(ScalingReport::bodyBytes));
+
+            out.println();
+            out.println(entry.getKey());
+            out.println(String.format(Locale.ROOT, "  %10s %14s %12s %14s %12s %10s",
+                    "size", "us/op", "ns/byte", "alloc B/op", "alloc/byte", "exponent"));
+            RunResult previous = null;
+            for (RunResult point : points) {
+                int bytes = bodyBytes(point);
+                double nanos = nanosPerOp(point);
+                double allocated = allocatedPerOp(point);
+                String exponent = "-";
+                if (previous != null) {
+                    double sizeRatio = (double) bytes / bodyBytes(previous);
+                    double timeRatio = nanos / nanosPerOp(previous);
+                    exponent = String.format(Locale.ROOT, "%.2f", Math.log(timeRatio) / Math.log(sizeRatio));
+                }
+                out.println(String.format(Locale.ROOT, "  %10s %14.1f %12.2f %14.0f %12.2f %10s",
+                        point.getParams().getParam(SIZE_PARAM), nanos / 1000.0, nanos / bytes,
+                        allocated, allocated / bytes, exponent));
+                previous = point;
+            }
+        }
+    }
+
+    private static String seriesName(RunResult result) {
+        StringBuilder name = new StringBuilder(result.getParams().getBenchmark());
+        for (String key : result.getParams().getParamsKeys()) {
+            if (!SIZE_PARAM.equals(key)) {
+                name.append(' ').append(key).append('=').append(result.getParams().getParam(key));
+            }
+        }
+        return name.toString();
+    }
+
+    private static int bodyBytes(RunResult result) {
+        return PayloadGenerator.parseSize(result.getParams().getParam(SIZE_PARAM));
+    }
+
+    private static double nanosPerOp(RunResult result) {
+        TimeUnit unit = result.getParams().getTimeUnit();
+        return result.getPrimaryResult().getScore() * unit.toNanos(1);
+    }
+
+    private static double allocatedPerOp(RunResult result) {
+        Result allocation = result.getSecondaryResults().get(ALLOCATION);
+        return allocation != null ? allocation.getScore() : Double.NaN;
+    }
+}
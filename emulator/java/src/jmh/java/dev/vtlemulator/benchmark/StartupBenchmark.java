@@ -0,0 +1,99 @@
+package dev.vtlemulator.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to first render of a fresh JVM: every invocation starts the standalone jar as a new process,
+ * renders the photo-album test case and waits for it to exit.
+ *
+ * {@code classData} compares class loading setups:
+ * - off: no class data sharing at all (-Xshare:off)
+ * - jdk: the JDK's default CDS archive, i.e. a plain {@code java -jar}
+ * - appcds: the application archive built by the cds profile (-XX:SharedArchiveFile)
+ *
+ * Needs the standalone jar and the archive, so run it with all three profiles:
+ *
+ * <pre>
+ * mvn -Pstandalone,cds,benchmark -DskipTests verify -Dbenchmark.args=StartupBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 20)
+@Fork(1)
+public class StartupBenchmark {
+    public static final String JAR_PROPERTY = "benchmark.standaloneJar";
+    public static final String ARCHIVE_PROPERTY = "benchmark.cdsArchive";
+    private static final String TEST_CASE = "photo-album";
+
+    @Param({"off", "jdk", "appcds"})
+    public String classData;
+
+    private List<String> command;
+
+    @Setup
+    public void setUp() {
+        Path jar = requireFile(JAR_PROPERTY, "build it with -Pstandalone");
+        command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        switch (classData) {
+            case "off":
+                command.add("-Xshare:off");
+                break;
+            case "appcds":
+                command.add("-XX:SharedArchiveFile=" + requireFile(ARCHIVE_PROPERTY, "build it with -Pstandalone,cds"));
+                break;
+            default:
+                break;
+        }
+        Path testCase = TestCaseCorpus.directory().resolve(TEST_CASE);
+        command.add("-jar");
+        command.add(jar.toString());
+        command.add("--template");
+        command.add(testCase.resolve("template.vtl").toString());
+        command.add("--input");
+        command.add(testCase.resolve("input.json").toString());
+        command.add("--context");
+        command.add(testCase.resolve("context.json").toString());
+    }
+
+    @Benchmark
+    public int firstRender() throws Exception {
+        Process process = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        int exit = process.waitFor();
+        if (exit != 0) {
+            throw new IllegalStateException("Render failed with exit code " + exit + ": " + String.join(" ", command));
+        }
+        return exit;
+    }
+
+    private static Path requireFile(String property, String hint) {
+        String value = System.getProperty(property);
+        if (value == null || !Files.exists(Paths.get(value))) {
+            throw new IllegalStateException(property + " (" + value + ") not found, " + hint);
+        }
+        return Paths.get(value);
+    }
+}
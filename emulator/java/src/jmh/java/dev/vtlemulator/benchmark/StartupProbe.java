@@ -0,0 +1,79 @@
+package dev.vtlemulator.benchmark;
+
+import dev.vtlemulator.engine.CompiledTemplate;
+import dev.vtlemulator.engine.RenderResult;
+import dev.vtlemulator.engine.VTLProcessor;
+
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Child process of {@link StartupReport}: measures one cold start, phase by phase, and prints a
+ * single {@code STARTUP phase=nanos/classes ...} line.
+ *
+ * Arguments: launch instant (epoch microseconds, taken by the parent just before starting this
+ * JVM) and the test case name.
+ */
+public final class StartupProbe {
+    static final String PREFIX = "STARTUP";
+    static final String[] PHASES = {"jvm", "classload", "init", "parse", "render", "render2"};
+
+    private static final String[] CORE_CLASSES = {
+        "dev.vtlemulator.engine.VTLProcessor",
+        "org.apache.velocity.runtime.RuntimeInstance",
+        "org.apache.velocity.Template",
+        "org.apache.velocity.VelocityContext",
+        "com.fasterxml.jackson.databind.ObjectMapper",
+    };
+
+    private StartupProbe() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Instant mainEntered = Instant.now();
+        long launchMicros = Long.parseLong(args[0]);
+        long jvm = Duration.between(Instant.EPOCH.plusNanos(launchMicros * 1000), mainEntered).toNanos();
+        TestCaseCorpus.TestCase testCase = TestCaseCorpus.load(args[1]);
+        ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+
+        StringBuilder line = new StringBuilder(PREFIX);
+        line.append(" jvm=").append(jvm).append('/').append(classLoading.getTotalLoadedClassCount());
+
+        long classes = classLoading.getTotalLoadedClassCount();
+        long start = System.nanoTime();
+        for (String name : CORE_CLASSES) {
+            Class.forName(name);
+        }
+        start = append(line, "classload", start, classLoading, classes);
+        classes = classLoading.getTotalLoadedClassCount();
+
+        VTLProcessor processor = new VTLProcessor();
+        start = append(line, "init", start, classLoading, classes);
+        classes = classLoading.getTotalLoadedClassCount();
+
+        CompiledTemplate template = processor.compile(testCase.getName(), testCase.getTemplate());
+        start = append(line, "parse", start, classLoading, classes);
+        classes = classLoading.getTotalLoadedClassCount();
+
+        RenderResult first = processor.render(template, testCase.getInput(), testCase.getContext());
+        start = append(line, "render", start, classLoading, classes);
+        classes = classLoading.getTotalLoadedClassCount();
+
+        RenderResult second = processor.render(template, testCase.getInput(), testCase.getContext());
+        append(line, "render2", start, classLoading, classes);
+
+        if (first.isError() || second.isError()) {
+            throw new IllegalStateException(first.getOutput());
+        }
+        System.out.println(line);
+    }
+
+    private static long append(StringBuilder line, String phase, long start, ClassLoadingMXBean classLoading, long classes) {
+        long now = System.nanoTime();
+        line.append(' ').append(phase).append('=').append(now - start)
+            .append('/').append(classLoading.getTotalLoadedClassCount() - classes);
+        return System.nanoTime();
+    }
+}
@@ -0,0 +1,139 @@
+package dev.vtlemulator.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Cold-start breakdown: launches {@link StartupProbe} in fresh JVMs and reports, per phase, the
+ * time from JVM launch to the first rendered result and the classes loaded along the way:
+ * - jvm: process launch until main() runs
+ * - classload: loading and initializing VTLProcessor, Velocity's RuntimeInstance/Template and Jackson
+ * - init: new VTLProcessor() (RuntimeInstance.init: configuration, directives, introspection)
+ * - parse: first template parse
+ * - render: first render, including the first use of the introspector and Jackson
+ * - render2: a second render of the same template, for comparison
+ *
+ * The classes column counts classes loaded during the phase; for jvm it is everything loaded
+ * before the first phase, including the JMX classes the probe uses to count.
+ *
+ * <pre>
+ * mvn -Pbenchmark -DskipTests verify -Dbenchmark.main=dev.vtlemulator.benchmark.StartupReport
+ * mvn -Pbenchmark -DskipTests verify -Dbenchmark.main=dev.vtlemulator.benchmark.StartupReport \
+ *     -Dbenchmark.args="30 complex-foreach -Xshare:off"
+ * </pre>
+ *
+ * Arguments: number of runs (default 10), test case (default photo-album), then JVM options for
+ * the probe processes. Results are also written to target/jmh/startup.json.
+ */
+public final class StartupReport {
+    private StartupReport() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        String testCase = args.length > 1 ? args[1] : "photo-album";
+        List<String> jvmOptions = args.length > 2 ? Arrays.asList(args).subList(2, args.length) : List.of();
+
+        Map<String, long[]> nanos = new LinkedHashMap<>();
+        Map<String, long[]> classes = new LinkedHashMap<>();
+        for (String phase : StartupProbe.PHASES) {
+            nanos.put(phase, new long[runs]);
+            classes.put(phase, new long[runs]);
+        }
+        for (int run = 0; run < runs; run++) {
+            for (String field : probe(testCase, jvmOptions).split(" ")) {
+                int eq = field.indexOf('=');
+                if (eq < 0) {
+                    continue;
+                }
+                String[] values = field.substring(eq + 1).split("/");
+                nanos.get(field.substring(0, eq))[run] = Long.parseLong(values[0]);
+                classes.get(field.substring(0, eq))[run] = Long.parseLong(values[1]);
+            }
+        }
+
+        print(System.out, testCase, runs, nanos, classes);
+        Path output = Paths.get(System.getProperty(BenchmarkRunner.OUTPUT_PROPERTY, "target/jmh"));
+        Files.createDirectories(output);
+        try (Writer writer = Files.newBufferedWriter(output.resolve("startup.json"))) {
+            writer.write(json(testCase, runs, nanos, classes));
+        }
+    }
+
+    private static String probe(String testCase, List<String> jvmOptions) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-D" + TestCaseCorpus.CORPUS_PROPERTY + "=" + TestCaseCorpus.directory().toAbsolutePath());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(StartupProbe.class.getName());
+        Instant launch = Instant.now();
+        command.add(Long.toString(Duration.between(Instant.EPOCH, launch).toNanos() / 1000));
+        command.add(testCase);
+
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        String result = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(StartupProbe.PREFIX)) {
+                    result = line;
+                }
+            }
+        }
+        if (process.waitFor() != 0 || result == null) {
+            throw new IllegalStateException("Startup probe failed: " + String.join(" ", command));
+        }
+        return result;
+    }
+
+    private static void print(PrintStream out, String testCase, int runs,
+                              Map<String, long[]> nanos, Map<String, long[]> classes) {
+        out.println();
+        out.println("Time to first render of " + testCase + " (" + runs + " fresh JVMs)");
+        out.println(String.format(Locale.ROOT, "  %-10s %10s %10s %10s %10s", "phase", "p50 ms", "min ms", "max ms", "classes"));
+        long total = 0;
+        for (String phase : nanos.keySet()) {
+            long[] sorted = nanos.get(phase).clone();
+            Arrays.sort(sorted);
+            long[] loaded = classes.get(phase).clone();
+            Arrays.sort(loaded);
+            if (!"render2".equals(phase)) {
+                total += sorted[sorted.length / 2];
+            }
+            out.println(String.format(Locale.ROOT, "  %-10s %10.2f %10.2f %10.2f %10d", phase,
+                    sorted[sorted.length / 2] / 1e6, sorted[0] / 1e6, sorted[sorted.length - 1] / 1e6,
+                    loaded[loaded.length / 2]));
+        }
+        out.println(String.format(Locale.ROOT, "  %-10s %10.2f", "total", total / 1e6));
+    }
+
+    private static String json(String testCase, int runs, Map<String, long[]> nanos, Map<String, long[]> classes) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"testCase\":\"").append(testCase).append("\",\"runs\":").append(runs).append(",\"phases\":{");
+        boolean first = true;
+        for (String phase : nanos.keySet()) {
+            json.append(first ? "" : ",").append('"').append(phase).append("\":{\"nanos\":")
+                .append(Arrays.toString(nanos.get(phase)).replace(" ", ""))
+                .append(",\"classes\":").append(Arrays.toString(classes.get(phase)).replace(" ", "")).append('}');
+            first = false;
+        }
+        return json.append("}}\n").toString();
+    }
+}
@@ -0,0 +1,92 @@
+package dev.vtlemulator.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Loads the file-based VTL test cases (src/test/resources/vtl-test-cases) so they can be
+ * replayed by the benchmarks. Uses the same folder layout and defaults as VTLFileBasedTest:
+ * - template.vtl: required, folders without it are skipped
+ * - input.json: optional, defaults to {}
+ * - context.json: optional, defaults to {}
+ */
+public final class TestCaseCorpus {
+    public static final String CORPUS_PROPERTY = "vtl.corpus";
+    private static final String DEFAULT_CORPUS_DIR = "src/test/resources/vtl-test-cases";
+
+    private TestCaseCorpus() {
+    }
+
+    public static Path directory() {
+        return Paths.get(System.getProperty(CORPUS_PROPERTY, DEFAULT_CORPUS_DIR));
+    }
+
+    /**
+     * Returns the names of all test case folders that contain a template, sorted by name.
+     */
+    public static List<String> names() {
+        List<String> names = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(directory())) {
+            paths.filter(Files::isDirectory)
+                 .filter(dir -> Files.exists(dir.resolve("template.vtl")))
+                 .map(dir -> dir.getFileName().toString())
+                 .sorted()
+                 .forEach(names::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list test cases in " + directory().toAbsolutePath(), e);
+        }
+        return names;
+    }
+
+    public static TestCase load(String name) {
+        Path dir = directory().resolve(name);
+        try {
+            String template = Files.readString(dir.resolve("template.vtl"));
+            String input = readOrDefault(dir.resolve("input.json"));
+            String context = readOrDefault(dir.resolve("context.json"));
+            return new TestCase(name, template, input, context);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load test case " + dir.toAbsolutePath(), e);
+        }
+    }
+
+    private static String readOrDefault(Path path) throws IOException {
+        return Files.exists(path) ? Files.readString(path).trim() : "{}";
+    }
+
+    public static final class TestCase {
+        private final String name;
+        private final String template;
+        private final String input;
+        private final String context;
+
+        TestCase(String name, String template, String input, String context) {
+            this.name = name;
+            this.template = template;
+            this.input = input;
+            this.context = context;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getTemplate() {
+            return template;
+        }
+
+        public String getInput() {
+            return input;
+        }
+
+        public String getContext() {
+            return context;
+        }
+    }
+}
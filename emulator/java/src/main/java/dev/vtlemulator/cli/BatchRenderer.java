@@ -0,0 +1,158 @@
+package dev.vtlemulator.cli;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import dev.vtlemulator.engine.RenderResult;
+import dev.vtlemulator.engine.VTLProcessor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Renders NDJSON records ({@code {"template": ..., "body": ..., "context": ...}}, one per line)
+ * on a thread pool and writes one result line per record, in input order:
+ * {@code {"line": n, "output": ...}} or {@code {"line": n, "error": ...}}, plus the record's
+ * {@code id} when it has one.
+ *
+ * {@code body} and {@code context} may be JSON strings (used as the raw text) or any other JSON
+ * value (used as its serialization); they default to an empty body and {}. At most
+ * {@code maxInFlight} records are read ahead of the oldest one not yet written, which bounds
+ * memory whatever the input size.
+ */
+final class BatchRenderer {
+    private final VTLProcessor processor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final int threads;
+    private final int maxInFlight;
+
+    private long records;
+    private long failed;
+    private long inputBytes;
+    private long outputBytes;
+
+    BatchRenderer(VTLProcessor processor, int threads, int maxInFlight) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1, was " + threads);
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1, was " + maxInFlight);
+        }
+        this.processor = processor;
+        this.threads = threads;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Renders every non-blank line of {@code in} and writes the results to {@code out}.
+     *
+     * @return whether every record rendered without error
+     */
+    boolean run(BufferedReader in, PrintStream out) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "vtl-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<Line>> pending = new ArrayDeque<>();
+        try {
+            long lineNumber = 0;
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                inputBytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                long number = lineNumber;
+                String record = line;
+                pending.add(executor.submit(() -> render(number, record)));
+                if (pending.size() >= maxInFlight) {
+                    write(pending.poll(), out);
+                }
+            }
+            while (!pending.isEmpty()) {
+                write(pending.poll(), out);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        out.flush();
+        return failed == 0;
+    }
+
+    /**
+     * One line of statistics for a run that took {@code nanos}.
+     */
+    String summary(long nanos) {
+        double seconds = Math.max(nanos, 1) / 1e9;
+        return String.format(Locale.ROOT, "%d records (%d failed) in %.3f s: %.1f records/s, %.2f MB/s in, %.2f MB/s out",
+                records, failed, seconds, records / seconds, inputBytes / seconds / 1e6, outputBytes / seconds / 1e6);
+    }
+
+    private void write(Future<Line> result, PrintStream out) throws IOException {
+        Line line;
+        try {
+            line = result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Render failed unexpectedly", e.getCause());
+        }
+        records++;
+        if (line.failed) {
+            failed++;
+        }
+        outputBytes += line.json.getBytes(StandardCharsets.UTF_8).length + 1;
+        out.println(line.json);
+    }
+
+    private Line render(long lineNumber, String line) throws IOException {
+        ObjectNode result = objectMapper.createObjectNode();
+        result.put("line", lineNumber);
+        JsonNode record;
+        try {
+            record = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            result.put("error", "Invalid record: " + e.getOriginalMessage());
+            return new Line(objectMapper.writeValueAsString(result), true);
+        }
+        if (!record.isObject() || !record.path("template").isTextual()) {
+            result.put("error", "Invalid record: expected an object with a \"template\" string");
+            return new Line(objectMapper.writeValueAsString(result), true);
+        }
+        if (record.has("id")) {
+            result.set("id", record.get("id"));
+        }
+        RenderResult rendered = processor.render(record.get("template").asText(),
+                text(record.get("body"), ""), text(record.get("context"), "{}"));
+        result.put(rendered.isError() ? "error" : "output", rendered.getOutput());
+        return new Line(objectMapper.writeValueAsString(result), rendered.isError());
+    }
+
+    private String text(JsonNode value, String absent) throws IOException {
+        if (value == null || value.isNull()) {
+            return absent;
+        }
+        return value.isTextual() ? value.asText() : objectMapper.writeValueAsString(value);
+    }
+
+    private static final class Line {
+        final String json;
+        final boolean failed;
+
+        Line(String json, boolean failed) {
+            this.json = json;
+            this.failed = failed;
+        }
+    }
+}
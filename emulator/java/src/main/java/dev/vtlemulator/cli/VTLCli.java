@@ -0,0 +1,218 @@
+package dev.vtlemulator.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.vtlemulator.engine.RenderResult;
+import dev.vtlemulator.engine.VTLProcessor;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Command line entry point, used by the standalone jar and the native executable:
+ *
+ * <pre>
+ * vtl-emulator --template mapping.vtl --input body.json --context context.json
+ * echo '{"name":"x"}' | vtl-emulator -t mapping.vtl -i -
+ * vtl-emulator --corpus src/test/resources/vtl-test-cases
+ * vtl-emulator --batch traffic.ndjson --threads 8 &gt; results.ndjson
+ * </pre>
+ *
+ * Exit codes: 0 on success, 1 when a render failed, 2 on invalid arguments or unreadable files.
+ */
+public final class VTLCli {
+    static final int OK = 0;
+    static final int RENDER_FAILED = 1;
+    static final int USAGE = 2;
+
+    private static final String USAGE_TEXT = String.join(System.lineSeparator(),
+            "Usage: vtl-emulator [options]",
+            "  -t, --template FILE   VTL template to render",
+            "  -i, --input FILE      request body, '-' reads stdin (default: empty body)",
+            "  -c, --context FILE    context variables as JSON (default: {})",
+            "      --corpus DIR      render every test case folder in DIR (template.vtl, input.json,",
+            "                        context.json) and check that each output is valid JSON",
+            "      --batch FILE      render NDJSON records {\"template\", \"body\", \"context\"}, one per",
+            "                        line, '-' reads stdin; writes one NDJSON result per record, in",
+            "                        order, and throughput statistics to stderr",
+            "      --threads N       batch render threads (default: available processors)",
+            "      --max-in-flight N batch records read ahead of the oldest unwritten one",
+            "                        (default: 4 per thread)",
+            "  -h, --help            show this help");
+
+    private final InputStream in;
+    private final PrintStream out;
+    private final PrintStream err;
+
+    VTLCli(InputStream in, PrintStream out, PrintStream err) {
+        this.in = in;
+        this.out = out;
+        this.err = err;
+    }
+
+    public static void main(String[] args) {
+        System.exit(new VTLCli(System.in, System.out, System.err).run(args));
+    }
+
+    int run(String[] args) {
+        String template = null;
+        String input = null;
+        String context = null;
+        String corpus = null;
+        String batch = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxInFlight = 0;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("-h".equals(arg) || "--help".equals(arg)) {
+                out.println(USAGE_TEXT);
+                return OK;
+            }
+            if (i + 1 >= args.length) {
+                return usage("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "-t":
+                case "--template":
+                    template = value;
+                    break;
+                case "-i":
+                case "--input":
+                    input = value;
+                    break;
+                case "-c":
+                case "--context":
+                    context = value;
+                    break;
+                case "--corpus":
+                    corpus = value;
+                    break;
+                case "--batch":
+                    batch = value;
+                    break;
+                case "--threads":
+                case "--max-in-flight":
+                    int count;
+                    try {
+                        count = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        count = 0;
+                    }
+                    if (count < 1) {
+                        return usage("Invalid value for " + arg + ": " + value);
+                    }
+                    if ("--threads".equals(arg)) {
+                        threads = count;
+                    } else {
+                        maxInFlight = count;
+                    }
+                    break;
+                default:
+                    return usage("Unknown option " + arg);
+            }
+        }
+
+        try {
+            if (corpus != null) {
+                return runCorpus(Paths.get(corpus));
+            }
+            if (batch != null) {
+                return runBatch(batch, threads, maxInFlight > 0 ? maxInFlight : 4 * threads);
+            }
+            if (template == null) {
+                return usage("Missing --template");
+            }
+            RenderResult result = new VTLProcessor().render(Files.readString(Paths.get(template)),
+                    input != null ? read(input) : "", context != null ? read(context) : "{}");
+            if (result.isError()) {
+                err.println(result.getOutput());
+                return RENDER_FAILED;
+            }
+            out.println(result.getOutput());
+            return OK;
+        } catch (IOException e) {
+            err.println("Cannot read " + e.getMessage());
+            return USAGE;
+        }
+    }
+
+    /**
+     * Same folder layout and defaults as VTLFileBasedTest: folders without template.vtl are skipped,
+     * input.json and context.json default to {}.
+     */
+    private int runCorpus(Path directory) throws IOException {
+        List<Path> cases = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.filter(dir -> Files.exists(dir.resolve("template.vtl"))).sorted().forEach(cases::add);
+        }
+        VTLProcessor processor = new VTLProcessor();
+        ObjectMapper objectMapper = new ObjectMapper();
+        int failed = 0;
+        for (Path dir : cases) {
+            String name = dir.getFileName().toString();
+            RenderResult result = processor.render(name, Files.readString(dir.resolve("template.vtl")),
+                    readOrDefault(dir.resolve("input.json")), readOrDefault(dir.resolve("context.json")));
+            String problem = null;
+            if (result.isError()) {
+                problem = result.getOutput();
+            } else {
+                try {
+                    objectMapper.readTree(result.getOutput());
+                } catch (IOException e) {
+                    problem = "output is not valid JSON: " + result.getOutput();
+                }
+            }
+            if (problem != null) {
+                failed++;
+                err.println("FAIL " + name + ": " + problem);
+            } else {
+                out.println("PASS " + name);
+            }
+        }
+        out.println((cases.size() - failed) + "/" + cases.size() + " test cases passed");
+        return failed == 0 ? OK : RENDER_FAILED;
+    }
+
+    private int runBatch(String file, int threads, int maxInFlight) throws IOException {
+        BatchRenderer renderer = new BatchRenderer(new VTLProcessor(), threads, maxInFlight);
+        long start = System.nanoTime();
+        boolean passed;
+        try (BufferedReader reader = "-".equals(file)
+                ? new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(file))) {
+            passed = renderer.run(reader, out);
+        }
+        err.println(renderer.summary(System.nanoTime() - start));
+        return passed ? OK : RENDER_FAILED;
+    }
+
+    private String read(String file) throws IOException {
+        if ("-".equals(file)) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            in.transferTo(buffer);
+            return buffer.toString(StandardCharsets.UTF_8);
+        }
+        return Files.readString(Paths.get(file));
+    }
+
+    private static String readOrDefault(Path path) throws IOException {
+        return Files.exists(path) ? Files.readString(path).trim() : "{}";
+    }
+
+    private int usage(String message) {
+        err.println(message);
+        err.println(USAGE_TEXT);
+        return USAGE;
+    }
+}
@@ -0,0 +1,39 @@
+package dev.vtlemulator.engine;
+
+import org.apache.velocity.context.InternalContextAdapter;
+import org.apache.velocity.runtime.directive.Foreach;
+import org.apache.velocity.runtime.parser.node.Node;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * #foreach that enforces the {@link RenderBudget} of the current render. Registered by
+ * {@link VTLProcessor} in place of Velocity's own #foreach; without a budget it behaves exactly
+ * like the original. Public only because Velocity instantiates directives reflectively.
+ */
+public class BudgetedForeach extends Foreach {
+    @Override
+    public boolean render(InternalContextAdapter context, Writer writer, Node node) throws IOException {
+        Object guard = context.get(RenderGuard.CONTEXT_KEY);
+        if (!(guard instanceof RenderGuard)) {
+            return super.render(context, writer, node);
+        }
+        RenderGuard renderGuard = (RenderGuard) guard;
+        int outer = renderGuard.beginLoop();
+        try {
+            return super.render(context, writer, node);
+        } finally {
+            renderGuard.endLoop(outer);
+        }
+    }
+
+    @Override
+    protected void renderBlock(InternalContextAdapter context, Writer writer, Node block) throws IOException {
+        Object guard = context.get(RenderGuard.CONTEXT_KEY);
+        if (guard instanceof RenderGuard) {
+            ((RenderGuard) guard).iteration(getLine(), getColumn());
+        }
+        super.renderBlock(context, writer, block);
+    }
+}
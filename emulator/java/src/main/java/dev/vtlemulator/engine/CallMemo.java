@@ -0,0 +1,37 @@
+package dev.vtlemulator.engine;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-render results of the calls memoized by {@link TemplateOptimizer}. Lives in the Velocity
+ * context under {@link #CONTEXT_KEY} (not a valid reference name, so templates can't reach it).
+ */
+final class CallMemo {
+    static final String CONTEXT_KEY = "vtl.callMemo";
+    static final Object MISSING = new Object();
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /**
+     * Returns the value recorded for the call on this receiver, or {@link #MISSING}.
+     */
+    Object get(String call, Object receiver) {
+        Entry entry = entries.get(call);
+        return entry != null && entry.receiver == receiver ? entry.value : MISSING;
+    }
+
+    void put(String call, Object receiver, Object value) {
+        entries.put(call, new Entry(receiver, value));
+    }
+
+    private static final class Entry {
+        final Object receiver;
+        final Object value;
+
+        Entry(Object receiver, Object value) {
+            this.receiver = receiver;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package dev.vtlemulator.engine;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Reads JSON into compact, read-only maps and lists instead of LinkedHashMap and ArrayList.
+ *
+ * The values are the ones {@code ObjectMapper.readValue(json, Map.class)} produces (Integer, Long,
+ * BigInteger, Double, String, Boolean, null), objects keep their key order and the last of
+ * duplicate keys wins. An object costs two arrays instead of a hash table plus one node per
+ * entry, and a list one exactly sized array, which for bodies made of many small objects is a
+ * fraction of the usual footprint.
+ *
+ * With lazy numbers, numbers are {@link JsonNumber} slices of the body instead: rendered as
+ * written (10.00 stays 10.00) and converted to the usual types only for arithmetic, comparisons
+ * and Number methods.
+ *
+ * The results can't be modified: templates that call put/add/remove on the parsed body, or assign
+ * its properties with #set, fail with an UnsupportedOperationException.
+ */
+public final class CompactJson {
+    private static final String[] NO_KEYS = new String[0];
+    private static final Object[] NO_VALUES = new Object[0];
+
+    private CompactJson() {
+    }
+
+    /**
+     * Compact equivalent of {@code objectMapper.readValue(json, Map.class)}: the document must be an
+     * object (or null), trailing content is ignored.
+     */
+    public static Map<String, Object> readObject(ObjectMapper objectMapper, String json) throws IOException {
+        return readObject(objectMapper, json, null);
+    }
+
+    /**
+     * Like {@link #readObject(ObjectMapper, String)}, with objects sharing their key arrays through
+     * {@code shapes} (none when null).
+     */
+    public static Map<String, Object> readObject(ObjectMapper objectMapper, String json, ShapeCache shapes)
+            throws IOException {
+        return readObject(objectMapper, json, shapes, false);
+    }
+
+    /**
+     * Like {@link #readObject(ObjectMapper, String, ShapeCache)}, with numbers kept as
+     * {@link JsonNumber} slices of {@code json} when {@code lazyNumbers} is set.
+     */
+    public static Map<String, Object> readObject(ObjectMapper objectMapper, String json, ShapeCache shapes,
+            boolean lazyNumbers) throws IOException {
+        if (json == null) {
+            throw new IllegalArgumentException("json is null");
+        }
+        return readObject(objectMapper, TextSource.of(json), shapes, lazyNumbers);
+    }
+
+    static Map<String, Object> readObject(ObjectMapper objectMapper, TextSource json, ShapeCache shapes,
+            boolean lazyNumbers) throws IOException {
+        try (JsonParser parser = json.createParser(objectMapper)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw MismatchedInputException.from(parser, Map.class,
+                        token == null ? "No content to map due to end-of-input" : "Expected a JSON object, got " + token);
+            }
+            return (CompactMap) new Reader(parser, shapes, lazyNumbers ? json : null).read(token);
+        }
+    }
+
+    /**
+     * Recursive descent over the tokens; members of the objects and arrays being read are kept on
+     * one shared stack and copied into exactly sized arrays when the object or array ends.
+     */
+    private static final class Reader {
+        private final JsonParser parser;
+        private final ShapeCache shapes;
+        private final TextSource source;
+        private Object[] stack = new Object[64];
+        private int size;
+
+        /**
+         * {@code source} is the parsed text when numbers are read lazily, null otherwise.
+         */
+        Reader(JsonParser parser, ShapeCache shapes, TextSource source) {
+            this.parser = parser;
+            this.shapes = shapes;
+            this.source = source;
+        }
+
+        Object read(JsonToken token) throws IOException {
+            if (token == null) {
+                throw MismatchedInputException.from(parser, Object.class, "Unexpected end-of-input");
+            }
+            switch (token) {
+                case START_OBJECT:
+                    return readObject();
+                case START_ARRAY:
+                    return readArray();
+                case VALUE_STRING:
+                    return parser.getText();
+                case VALUE_NUMBER_INT:
+                case VALUE_NUMBER_FLOAT:
+                    return source != null ? readNumber() : parser.getNumberValue();
+                case VALUE_TRUE:
+                    return Boolean.TRUE;
+                case VALUE_FALSE:
+                    return Boolean.FALSE;
+                case VALUE_NULL:
+                    return null;
+                case VALUE_EMBEDDED_OBJECT:
+                    return parser.getEmbeddedObject();
+                default:
+                    throw MismatchedInputException.from(parser, Object.class, "Unexpected token " + token);
+            }
+        }
+
+        private JsonNumber readNumber() throws IOException {
+            int length = parser.getTextLength();
+            JsonLocation location = parser.currentTokenLocation();
+            byte[] bytes = source.bytes();
+            if (bytes != null) {
+                long offset = source.bytesOffset() + location.getByteOffset();
+                if (location.getByteOffset() >= 0 && offset + length <= bytes.length
+                        && isTokenAt(bytes, (int) offset, length)) {
+                    return new JsonNumber(bytes, (int) offset, length);
+                }
+            } else if (source.isDecoded()) {
+                String text = source.text();
+                long offset = location.getCharOffset();
+                if (offset >= 0 && offset + length <= text.length() && isTokenAt(text, (int) offset, length)) {
+                    return new JsonNumber(text, (int) offset, length);
+                }
+            }
+            return new JsonNumber(parser.getText(), 0, length);
+        }
+
+        private boolean isTokenAt(String text, int offset, int length) throws IOException {
+            // the digits are compared in the parser's buffer, without copying them to a String
+            char[] token = parser.getTextCharacters();
+            int start = parser.getTextOffset();
+            for (int i = 0; i < length; i++) {
+                if (token[start + i] != text.charAt(offset + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isTokenAt(byte[] bytes, int offset, int length) throws IOException {
+            char[] token = parser.getTextCharacters();
+            int start = parser.getTextOffset();
+            for (int i = 0; i < length; i++) {
+                if (token[start + i] != bytes[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private CompactMap readObject() throws IOException {
+            int start = size;
+            ShapeCache.Shape shape = shapes != null ? shapes.root() : null;
+            for (JsonToken token = parser.nextToken(); token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+                String key = parser.currentName();
+                if (shape != null) {
+                    shape = shapes.next(shape, key);
+                }
+                push(key);
+                push(read(parser.nextToken()));
+            }
+            int count = (size - start) / 2;
+            if (count == 0) {
+                return CompactMap.of(NO_KEYS, NO_VALUES);
+            }
+            if (shape != null) {
+                Object[] values = new Object[count];
+                for (int i = 0; i < count; i++) {
+                    values[i] = stack[start + 2 * i + 1];
+                }
+                release(start);
+                return CompactMap.shaped(shape.keys, shape.index, values);
+            }
+            String[] keys = new String[count];
+            Object[] values = new Object[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = (String) stack[start + 2 * i];
+                values[i] = stack[start + 2 * i + 1];
+            }
+            release(start);
+            return CompactMap.of(keys, values);
+        }
+
+        private CompactList readArray() throws IOException {
+            int start = size;
+            for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+                push(read(token));
+            }
+            Object[] values = size == start ? NO_VALUES : new Object[size - start];
+            System.arraycopy(stack, start, values, 0, size - start);
+            release(start);
+            return new CompactList(values);
+        }
+
+        private void push(Object value) {
+            if (size == stack.length) {
+                Object[] grown = new Object[size * 2];
+                System.arraycopy(stack, 0, grown, 0, size);
+                stack = grown;
+            }
+            stack[size++] = value;
+        }
+
+        private void release(int start) {
+            // drop the references so finished subtrees are not kept alive by the stack
+            Arrays.fill(stack, start, size, null);
+            size = start;
+        }
+    }
+}
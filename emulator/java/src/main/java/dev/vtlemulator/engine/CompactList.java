@@ -0,0 +1,55 @@
+package dev.vtlemulator.engine;
+
+import java.util.AbstractList;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Read-only list built by {@link CompactJson}, backed by an exactly sized array. Mutators throw
+ * {@link UnsupportedOperationException}. Lookups compare lazy numbers by value, so
+ * {@code contains(2)} finds a 2 of the body.
+ */
+final class CompactList extends AbstractList<Object> implements RandomAccess {
+    private final Object[] values;
+
+    CompactList(Object[] values) {
+        this.values = values;
+    }
+
+    @Override
+    public Object get(int index) {
+        return values[Objects.checkIndex(index, values.length)];
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        Object value = JsonNumber.materialize(o);
+        for (int i = 0; i < values.length; i++) {
+            if (Objects.equals(value, JsonNumber.materialize(values[i]))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        Object value = JsonNumber.materialize(o);
+        for (int i = values.length - 1; i >= 0; i--) {
+            if (Objects.equals(value, JsonNumber.materialize(values[i]))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+}
@@ -0,0 +1,198 @@
+package dev.vtlemulator.engine;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Read-only map built by {@link CompactJson}: keys and values in two parallel arrays, in document
+ * order. Small maps are searched linearly; from {@link #INDEX_THRESHOLD} keys on, an open-addressing
+ * table of positions is added. Mutators throw {@link UnsupportedOperationException}.
+ */
+final class CompactMap extends AbstractMap<String, Object> {
+    static final int INDEX_THRESHOLD = 9;
+
+    private final String[] keys;
+    private final Object[] values;
+    private final int[] index;
+
+    private CompactMap(String[] keys, Object[] values, int[] index) {
+        this.keys = keys;
+        this.values = values;
+        this.index = index;
+    }
+
+    /**
+     * Takes ownership of the arrays. Like LinkedHashMap, a repeated key keeps the position of its
+     * first occurrence and the value of its last one.
+     */
+    static CompactMap of(String[] keys, Object[] values) {
+        int count = keys.length;
+        int[] index = count >= INDEX_THRESHOLD ? new int[Integer.highestOneBit(count * 2 - 1) << 1] : null;
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            int existing = index != null ? insert(index, keys, unique, keys[i]) : linearIndexOf(keys, unique, keys[i]);
+            if (existing >= 0) {
+                values[existing] = values[i];
+            } else {
+                keys[unique] = keys[i];
+                values[unique] = values[i];
+                unique++;
+            }
+        }
+        if (unique < count) {
+            keys = Arrays.copyOf(keys, unique);
+            values = Arrays.copyOf(values, unique);
+        }
+        return new CompactMap(keys, values, index);
+    }
+
+    /**
+     * Map of a {@link ShapeCache} shape: shares {@code keys} (distinct) and {@code index} with every
+     * other map of that shape and takes ownership of {@code values}.
+     */
+    static CompactMap shaped(String[] keys, int[] index, Object[] values) {
+        return new CompactMap(keys, values, index);
+    }
+
+    /**
+     * Position table for distinct {@code keys}, or null when they are few enough to scan.
+     */
+    static int[] index(String[] keys) {
+        if (keys.length < INDEX_THRESHOLD) {
+            return null;
+        }
+        int[] index = new int[Integer.highestOneBit(keys.length * 2 - 1) << 1];
+        for (int i = 0; i < keys.length; i++) {
+            insert(index, keys, i, keys[i]);
+        }
+        return index;
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int i = indexOf(key);
+        return i >= 0 ? values[i] : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Compares lazy numbers by value, like {@link CompactList#indexOf}.
+     */
+    @Override
+    public boolean containsValue(Object value) {
+        Object wanted = JsonNumber.materialize(value);
+        for (Object candidate : values) {
+            if (Objects.equals(wanted, JsonNumber.materialize(candidate))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+        for (int i = 0; i < keys.length; i++) {
+            action.accept(keys[i], values[i]);
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Object>>() {
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                return new Iterator<Map.Entry<String, Object>>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < keys.length;
+                    }
+
+                    @Override
+                    public Map.Entry<String, Object> next() {
+                        if (next >= keys.length) {
+                            throw new NoSuchElementException();
+                        }
+                        int i = next++;
+                        return new SimpleImmutableEntry<>(keys[i], values[i]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        };
+    }
+
+    private int indexOf(Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        if (index == null) {
+            return linearIndexOf(keys, keys.length, key);
+        }
+        int mask = index.length - 1;
+        for (int slot = spread(key.hashCode()) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+            int i = index[slot] - 1;
+            if (keys[i] == key || keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int linearIndexOf(String[] keys, int count, Object key) {
+        for (int i = 0; i < count; i++) {
+            // keys usually come from the parser's symbol table, so identity often matches
+            if (keys[i] == key || keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds keys[position] to the table unless an equal key is already there; returns the position
+     * of that key, or -1.
+     */
+    private static int insert(int[] index, String[] keys, int position, String key) {
+        int mask = index.length - 1;
+        int slot = spread(key.hashCode()) & mask;
+        for (; index[slot] != 0; slot = (slot + 1) & mask) {
+            int i = index[slot] - 1;
+            if (keys[i] == key || keys[i].equals(key)) {
+                return i;
+            }
+        }
+        index[slot] = position + 1;
+        return -1;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
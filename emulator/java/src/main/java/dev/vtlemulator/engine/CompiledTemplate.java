@@ -0,0 +1,87 @@
+package dev.vtlemulator.engine;
+
+import org.apache.velocity.Template;
+
+import java.util.Set;
+
+/**
+ * A template parsed once by {@link VTLProcessor}, ready to be merged any number of times.
+ */
+public class CompiledTemplate {
+    private final String id;
+    private final String source;
+    private final Template template;
+    private final int memoizedCalls;
+    private final boolean deterministic;
+    private final boolean readsBody;
+    private final boolean mayChangeInput;
+    private final Set<String> contextKeys;
+
+    CompiledTemplate(String id, String source, Template template) {
+        this(id, source, template, 0, null);
+    }
+
+    /**
+     * @param analysis what the template reads; null when it wasn't analyzed, which counts as
+     *                 non-deterministic and reading everything
+     */
+    CompiledTemplate(String id, String source, Template template, int memoizedCalls, TemplateAnalyzer analysis) {
+        this.id = id;
+        this.source = source;
+        this.template = template;
+        this.memoizedCalls = memoizedCalls;
+        this.deterministic = analysis != null && analysis.isDeterministic();
+        this.readsBody = analysis == null || analysis.readsBody();
+        this.mayChangeInput = analysis == null || analysis.mayChangeInput();
+        this.contextKeys = analysis != null ? analysis.getContextKeys() : null;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    Template getTemplate() {
+        return template;
+    }
+
+    /**
+     * Number of call sites that {@link TemplateOptimizer} evaluates once per render.
+     */
+    int getMemoizedCalls() {
+        return memoizedCalls;
+    }
+
+    /**
+     * Whether the same body and context always render the same output (see
+     * {@link TemplateAnalyzer}); false for templates that read the clock or request IDs.
+     */
+    public boolean isDeterministic() {
+        return deterministic;
+    }
+
+    /**
+     * Whether the template can read the request body.
+     */
+    boolean readsBody() {
+        return readsBody;
+    }
+
+    /**
+     * Whether the template can change the parsed body, so $input.json('$') has to serialize it
+     * rather than stream the body.
+     */
+    boolean mayChangeInput() {
+        return mayChangeInput;
+    }
+
+    /**
+     * The top-level context keys the template can read, or null when it can read any.
+     */
+    Set<String> getContextKeys() {
+        return contextKeys;
+    }
+}
@@ -0,0 +1,173 @@
+package dev.vtlemulator.engine;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.context.InternalContextAdapter;
+import org.apache.velocity.exception.MethodInvocationException;
+import org.apache.velocity.exception.ParseErrorException;
+import org.apache.velocity.exception.ResourceNotFoundException;
+import org.apache.velocity.exception.TemplateInitException;
+import org.apache.velocity.runtime.parser.Parser;
+import org.apache.velocity.runtime.parser.Token;
+import org.apache.velocity.runtime.parser.node.Node;
+import org.apache.velocity.runtime.parser.node.StandardParserVisitor;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Base class for the wrappers we put into parsed templates: a node that forwards everything to the
+ * node it replaces. Subclasses override the evaluation methods they are interested in.
+ */
+abstract class DelegatingNode implements Node {
+    protected final Node delegate;
+
+    DelegatingNode(Node delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean render(InternalContextAdapter context, Writer writer)
+            throws IOException, MethodInvocationException, ParseErrorException, ResourceNotFoundException {
+        return delegate.render(context, writer);
+    }
+
+    @Override
+    public boolean evaluate(InternalContextAdapter context) throws MethodInvocationException {
+        return delegate.evaluate(context);
+    }
+
+    @Override
+    public Object value(InternalContextAdapter context) throws MethodInvocationException {
+        return delegate.value(context);
+    }
+
+    @Override
+    public Object execute(Object o, InternalContextAdapter context) throws MethodInvocationException {
+        return delegate.execute(o, context);
+    }
+
+    @Override
+    public Object init(InternalContextAdapter context, Object data) throws TemplateInitException {
+        return delegate.init(context, data);
+    }
+
+    @Override
+    public void jjtOpen() {
+        delegate.jjtOpen();
+    }
+
+    @Override
+    public void jjtClose() {
+        delegate.jjtClose();
+    }
+
+    @Override
+    public void jjtSetParent(Node n) {
+        delegate.jjtSetParent(n);
+    }
+
+    @Override
+    public Node jjtGetParent() {
+        return delegate.jjtGetParent();
+    }
+
+    @Override
+    public void jjtAddChild(Node n, int i) {
+        delegate.jjtAddChild(n, i);
+    }
+
+    @Override
+    public Node jjtGetChild(int i) {
+        return delegate.jjtGetChild(i);
+    }
+
+    @Override
+    public int jjtGetNumChildren() {
+        return delegate.jjtGetNumChildren();
+    }
+
+    @Override
+    public Object jjtAccept(StandardParserVisitor visitor, Object data) {
+        return delegate.jjtAccept(visitor, data);
+    }
+
+    @Override
+    public Object childrenAccept(StandardParserVisitor visitor, Object data) {
+        return delegate.childrenAccept(visitor, data);
+    }
+
+    @Override
+    public Token getFirstToken() {
+        return delegate.getFirstToken();
+    }
+
+    @Override
+    public Token getLastToken() {
+        return delegate.getLastToken();
+    }
+
+    @Override
+    public int getType() {
+        return delegate.getType();
+    }
+
+    @Override
+    public void setInfo(int info) {
+        delegate.setInfo(info);
+    }
+
+    @Override
+    public int getInfo() {
+        return delegate.getInfo();
+    }
+
+    @Override
+    public String literal() {
+        return delegate.literal();
+    }
+
+    @Override
+    public void setInvalid() {
+        delegate.setInvalid();
+    }
+
+    @Override
+    public boolean isInvalid() {
+        return delegate.isInvalid();
+    }
+
+    @Override
+    public int getLine() {
+        return delegate.getLine();
+    }
+
+    @Override
+    public int getColumn() {
+        return delegate.getColumn();
+    }
+
+    @Override
+    public String getTemplateName() {
+        return delegate.getTemplateName();
+    }
+
+    @Override
+    public String getFirstTokenImage() {
+        return delegate.getFirstTokenImage();
+    }
+
+    @Override
+    public String getLastTokenImage() {
+        return delegate.getLastTokenImage();
+    }
+
+    @Override
+    public Template getTemplate() {
+        return delegate.getTemplate();
+    }
+
+    @Override
+    public Parser getParser() {
+        return delegate.getParser();
+    }
+}
@@ -0,0 +1,115 @@
+package dev.vtlemulator.engine;
+
+import org.apache.velocity.context.InternalContextAdapter;
+import org.apache.velocity.runtime.parser.node.Node;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A run of adjacent statements that only read configuration (see
+ * {@link TemplateOptimizer#findFragments}), rendered once per configuration version: the text is
+ * cached by the values of the configuration inputs it reads and written in one piece on later
+ * renders. The values are read from the render's context (the context JSON), where
+ * {@link ContextFunctions} reads them too.
+ *
+ * Found before {@code initDocument()}, put in place by {@link #install()} after it: the first node
+ * of the run is replaced by this node, the others by empty {@link StaticTextNode}s. At most
+ * {@link #MAX_VERSIONS} versions are kept per fragment; renders of further versions, or with a
+ * value that isn't a string, number or boolean, render the run as before.
+ */
+class FragmentNode extends DelegatingNode {
+    static final int MAX_VERSIONS = 32;
+
+    private static final Object ABSENT = new Object();
+
+    private final Node parent;
+    private final int start;
+    private final int end;
+    // context key of each input, and the stage variable name for stageVariables inputs
+    private final String[] keys;
+    private final String[] members;
+    private final Map<List<Object>, String> versions = new ConcurrentHashMap<>();
+    private Node[] nodes;
+
+    /**
+     * @param inputs "key" for a context key, "stageVariables.name" for a stage variable
+     */
+    FragmentNode(Node parent, int start, int end, Set<String> inputs) {
+        super(parent.jjtGetChild(start));
+        this.parent = parent;
+        this.start = start;
+        this.end = end;
+        this.keys = new String[inputs.size()];
+        this.members = new String[inputs.size()];
+        int i = 0;
+        for (String input : inputs) {
+            int dot = input.indexOf('.');
+            keys[i] = dot < 0 ? input : input.substring(0, dot);
+            members[i] = dot < 0 ? null : input.substring(dot + 1);
+            i++;
+        }
+    }
+
+    /**
+     * Replaces the run in its parent by this node, once the template is initialized.
+     */
+    void install() {
+        nodes = new Node[end - start];
+        for (int i = start; i < end; i++) {
+            nodes[i - start] = parent.jjtGetChild(i);
+        }
+        parent.jjtAddChild(this, start);
+        for (int i = start + 1; i < end; i++) {
+            parent.jjtAddChild(new StaticTextNode(nodes[i - start], ""), i);
+        }
+    }
+
+    int versions() {
+        return versions.size();
+    }
+
+    @Override
+    public boolean render(InternalContextAdapter context, Writer writer) throws IOException {
+        List<Object> version = version(context);
+        String text = version != null ? versions.get(version) : null;
+        if (text == null) {
+            StringWriter out = new StringWriter();
+            for (Node node : nodes) {
+                node.render(context, out);
+            }
+            text = out.toString();
+            if (version != null && versions.size() < MAX_VERSIONS) {
+                versions.putIfAbsent(version, text);
+            }
+        }
+        writer.write(text);
+        return true;
+    }
+
+    /**
+     * The values of the inputs, or null when one can't be used as a cache key.
+     */
+    private List<Object> version(InternalContextAdapter context) {
+        Object[] values = new Object[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            Object value = context.containsKey(keys[i]) ? context.get(keys[i]) : ABSENT;
+            if (members[i] != null) {
+                Map<?, ?> map = value instanceof Map ? (Map<?, ?>) value : null;
+                value = map != null && map.containsKey(members[i]) ? map.get(members[i]) : ABSENT;
+            }
+            if (value != null && value != ABSENT && !(value instanceof String || value instanceof Number
+                    || value instanceof Boolean)) {
+                return null;
+            }
+            values[i] = value;
+        }
+        return Arrays.asList(values);
+    }
+}
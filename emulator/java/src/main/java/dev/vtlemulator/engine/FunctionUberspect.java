@@ -0,0 +1,381 @@
+package dev.vtlemulator.engine;
+
+import org.apache.velocity.util.introspection.Info;
+import org.apache.velocity.util.introspection.UberspectImpl;
+import org.apache.velocity.util.introspection.VelMethod;
+import org.apache.velocity.util.introspection.VelPropertyGet;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uberspector that skips Velocity's reflective lookup for the calls templates make all the time.
+ *
+ * Velocity caches resolved methods in the render context, which we create per render, so by
+ * default every call site is resolved again through the introspector on every render. Here:
+ * - methods and getters of {@link InputFunctions}, {@link UtilFunctions}, {@link ContextFunctions}
+ *   and its nested context classes are bound once, at class initialization, to MethodHandles
+ * - property access on Jackson's maps ({@code $item.id}) is a direct {@code Map.get}
+ * - the common Map and List methods ({@code get}, {@code size}, {@code isEmpty}, ...) are called
+ *   directly
+ *
+ * A fast path is only taken when the arguments already have the declared parameter types; anything
+ * that needs Velocity's argument conversion, and every other class, goes through
+ * {@link UberspectImpl} as before. Public only because Velocity instantiates it reflectively.
+ */
+public class FunctionUberspect extends UberspectImpl {
+    private static final Map<Class<?>, FunctionClass> FUNCTION_CLASSES = new HashMap<>();
+    private static final Map<String, DirectMethod> MAP_METHODS = new HashMap<>();
+    private static final Map<String, DirectMethod> LIST_METHODS = new HashMap<>();
+
+    static {
+        for (Class<?> type : new Class<?>[] {InputFunctions.class, UtilFunctions.class, ContextFunctions.class}) {
+            addFunctionClass(type);
+        }
+        // $input.body is the body as read: a view of a mapped file that is decoded only if needed
+        Map<String, DirectMethod> input = FUNCTION_CLASSES.get(InputFunctions.class).methods;
+        for (String name : new String[] {"body", "getBody"}) {
+            input.put(key(name, 0), new DirectMethod(reflect(InputFunctions.class, name),
+                    (target, args) -> ((InputFunctions) target).bodyView(), new Class<?>[0]));
+        }
+
+        mapMethod("get", (map, args) -> map.get(args[0]), Object.class);
+        mapMethod("containsKey", (map, args) -> map.containsKey(args[0]), Object.class);
+        mapMethod("size", (map, args) -> map.size());
+        mapMethod("isEmpty", (map, args) -> map.isEmpty());
+        mapMethod("keySet", (map, args) -> map.keySet());
+        mapMethod("values", (map, args) -> map.values());
+        mapMethod("entrySet", (map, args) -> map.entrySet());
+
+        listMethod("get", (list, args) -> list.get((Integer) args[0]), int.class);
+        listMethod("size", (list, args) -> list.size());
+        listMethod("isEmpty", (list, args) -> list.isEmpty());
+        listMethod("contains", (list, args) -> list.contains(args[0]), Object.class);
+    }
+
+    @Override
+    public VelMethod getMethod(Object obj, String methodName, Object[] args, Info i) {
+        if (obj instanceof JsonNumber || JsonNumber.materialize(args) != args) {
+            return lazyNumberMethod(obj, methodName, args, i);
+        }
+        return resolve(obj, methodName, args, i);
+    }
+
+    private VelMethod resolve(Object obj, String methodName, Object[] args, Info i) {
+        if (obj != null) {
+            Class<?> type = obj.getClass();
+            DirectMethod method = null;
+            FunctionClass functions = FUNCTION_CLASSES.get(type);
+            if (functions != null) {
+                method = functions.methods.get(key(methodName, args.length));
+            } else if (type == LinkedHashMap.class || type == HashMap.class || type == CompactMap.class) {
+                method = MAP_METHODS.get(key(methodName, args.length));
+            } else if (type == ArrayList.class || type == CompactList.class) {
+                method = LIST_METHODS.get(key(methodName, args.length));
+            }
+            if (method != null && method.accepts(args)) {
+                return method;
+            }
+        }
+        return super.getMethod(obj, methodName, args, i);
+    }
+
+    /**
+     * Lazy numbers (see {@link JsonNumber}) passed as arguments are converted to the Integer, Long,
+     * BigInteger or Double an eager parse gives, so overloads, argument conversions and equality
+     * work as they do on an eagerly parsed body. A lazy number is itself converted when the method
+     * isn't one of its own (compareTo, ...).
+     */
+    private VelMethod lazyNumberMethod(Object obj, String methodName, Object[] args, Info i) {
+        Object[] values = JsonNumber.materialize(args);
+        VelMethod method = resolve(obj, methodName, values, i);
+        if (method == null && obj instanceof JsonNumber) {
+            Object value = ((JsonNumber) obj).value();
+            method = resolve(value, methodName, values, i);
+            return method != null ? new LazyNumberMethod(method, true, value, values, i) : null;
+        }
+        return method != null ? new LazyNumberMethod(method, false, obj, values, i) : null;
+    }
+
+    @Override
+    public VelPropertyGet getPropertyGet(Object obj, String identifier, Info i) {
+        if (obj != null) {
+            Class<?> type = obj.getClass();
+            FunctionClass functions = FUNCTION_CLASSES.get(type);
+            if (functions != null) {
+                DirectMethod getter = functions.getter(identifier);
+                if (getter != null) {
+                    return getter;
+                }
+            } else if ((type == LinkedHashMap.class || type == HashMap.class || type == CompactMap.class)
+                    && !"class".equalsIgnoreCase(identifier)) {
+                // Velocity would look for a getter first, but the only one these maps have is getClass()
+                return new MapGet(identifier);
+            }
+        }
+        return super.getPropertyGet(obj, identifier, i);
+    }
+
+    private static void addFunctionClass(Class<?> type) {
+        FunctionClass functions = new FunctionClass();
+        Map<String, Integer> overloads = new HashMap<>();
+        for (Method method : type.getMethods()) {
+            if (method.getDeclaringClass() == Object.class || Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            String key = key(method.getName(), method.getParameterCount());
+            if (overloads.merge(key, 1, Integer::sum) > 1) {
+                // Same name and arity: let Velocity pick the overload
+                functions.methods.remove(key);
+                continue;
+            }
+            functions.methods.put(key, new DirectMethod(method, handleInvoker(method), method.getParameterTypes()));
+        }
+        FUNCTION_CLASSES.put(type, functions);
+        for (Class<?> nested : type.getClasses()) {
+            addFunctionClass(nested);
+        }
+    }
+
+    private static Invoker handleInvoker(Method method) {
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.publicLookup().unreflect(method)
+                    .asType(MethodType.genericMethodType(method.getParameterCount() + 1))
+                    .asSpreader(1, Object[].class, method.getParameterCount());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot bind " + method, e);
+        }
+        return (target, args) -> handle.invoke(target, args);
+    }
+
+    private static void mapMethod(String name, MapInvoker invoker, Class<?>... parameterTypes) {
+        MAP_METHODS.put(key(name, parameterTypes.length), new DirectMethod(
+                reflect(Map.class, name, parameterTypes), (target, args) -> invoker.invoke((Map<?, ?>) target, args), parameterTypes));
+    }
+
+    private static void listMethod(String name, ListInvoker invoker, Class<?>... parameterTypes) {
+        LIST_METHODS.put(key(name, parameterTypes.length), new DirectMethod(
+                reflect(List.class, name, parameterTypes), (target, args) -> invoker.invoke((List<?>) target, args), parameterTypes));
+    }
+
+    private static Method reflect(Class<?> type, String name, Class<?>... parameterTypes) {
+        try {
+            return type.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String key(String name, int arity) {
+        return name + '/' + arity;
+    }
+
+    private static Class<?> boxed(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        return MethodType.methodType(type).wrap().returnType();
+    }
+
+    private interface Invoker {
+        Object invoke(Object target, Object[] args) throws Throwable;
+    }
+
+    private interface MapInvoker {
+        Object invoke(Map<?, ?> map, Object[] args);
+    }
+
+    private interface ListInvoker {
+        Object invoke(List<?> list, Object[] args);
+    }
+
+    private static class FunctionClass {
+        final Map<String, DirectMethod> methods = new HashMap<>();
+        final Map<String, DirectMethod> getters = Collections.synchronizedMap(new HashMap<>());
+
+        /**
+         * Same lookup as Velocity's PropertyExecutor: get + identifier as written, then with the
+         * case of its first letter swapped.
+         */
+        DirectMethod getter(String identifier) {
+            DirectMethod getter = getters.get(identifier);
+            if (getter == null && !identifier.isEmpty()) {
+                getter = methods.get(key("get" + identifier, 0));
+                if (getter == null) {
+                    char first = identifier.charAt(0);
+                    char swapped = Character.isLowerCase(first) ? Character.toUpperCase(first) : Character.toLowerCase(first);
+                    getter = methods.get(key("get" + swapped + identifier.substring(1), 0));
+                }
+                if (getter != null) {
+                    getters.put(identifier, getter);
+                }
+            }
+            return getter;
+        }
+    }
+
+    /**
+     * Pre-resolved method: invoked without introspection, failures are reported like
+     * {@link Method#invoke} does so Velocity's error handling is unchanged.
+     */
+    private static class DirectMethod implements VelMethod, VelPropertyGet {
+        private final Method method;
+        private final Invoker invoker;
+        private final Class<?>[] parameterTypes;
+        private final boolean[] primitive;
+
+        DirectMethod(Method method, Invoker invoker, Class<?>[] parameterTypes) {
+            this.method = method;
+            this.invoker = invoker;
+            this.parameterTypes = new Class<?>[parameterTypes.length];
+            this.primitive = new boolean[parameterTypes.length];
+            for (int i = 0; i < parameterTypes.length; i++) {
+                this.parameterTypes[i] = boxed(parameterTypes[i]);
+                this.primitive[i] = parameterTypes[i].isPrimitive();
+            }
+        }
+
+        boolean accepts(Object[] args) {
+            for (int i = 0; i < parameterTypes.length; i++) {
+                if (args[i] == null ? primitive[i] : !parameterTypes[i].isInstance(args[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Object invoke(Object o, Object[] params) throws InvocationTargetException {
+            try {
+                return invoker.invoke(o, params);
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+
+        @Override
+        public Object invoke(Object o) throws InvocationTargetException {
+            return invoke(o, new Object[0]);
+        }
+
+        @Override
+        public boolean isCacheable() {
+            return true;
+        }
+
+        @Override
+        public String getMethodName() {
+            return method.getName();
+        }
+
+        @Override
+        public Method getMethod() {
+            return method;
+        }
+
+        @Override
+        public Class<?> getReturnType() {
+            return method.getReturnType();
+        }
+    }
+
+    /**
+     * Converts lazy numbers before calling the method they were resolved for. Velocity caches the
+     * method per call site and argument classes, and lazy numbers of one class convert to different
+     * ones, so a call whose converted classes differ is resolved again.
+     */
+    private class LazyNumberMethod implements VelMethod {
+        private final VelMethod method;
+        private final boolean convertTarget;
+        private final Class<?>[] classes;
+        private final Info info;
+
+        LazyNumberMethod(VelMethod method, boolean convertTarget, Object target, Object[] args, Info info) {
+            this.method = method;
+            this.convertTarget = convertTarget;
+            this.classes = classes(target, args);
+            this.info = info;
+        }
+
+        @Override
+        public Object invoke(Object o, Object[] params) throws IllegalAccessException, InvocationTargetException {
+            Object target = convertTarget ? JsonNumber.materialize(o) : o;
+            Object[] values = JsonNumber.materialize(params);
+            VelMethod resolved = method;
+            if (!Arrays.equals(classes, classes(target, values))) {
+                resolved = resolve(target, method.getMethodName(), values, info);
+                if (resolved == null) {
+                    throw new InvocationTargetException(new NoSuchMethodException(method.getMethodName()
+                            + " for " + Arrays.toString(classes(target, values))));
+                }
+            }
+            return resolved.invoke(target, values);
+        }
+
+        @Override
+        public boolean isCacheable() {
+            return method.isCacheable();
+        }
+
+        @Override
+        public String getMethodName() {
+            return method.getMethodName();
+        }
+
+        @Override
+        public Method getMethod() {
+            return method.getMethod();
+        }
+
+        @Override
+        public Class<?> getReturnType() {
+            return method.getReturnType();
+        }
+
+        private Class<?>[] classes(Object target, Object[] args) {
+            Class<?>[] classes = new Class<?>[args.length + 1];
+            classes[0] = target != null ? target.getClass() : null;
+            for (int i = 0; i < args.length; i++) {
+                classes[i + 1] = args[i] != null ? args[i].getClass() : null;
+            }
+            return classes;
+        }
+    }
+
+    private static class MapGet implements VelPropertyGet {
+        private final String key;
+
+        MapGet(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public Object invoke(Object o) {
+            return ((Map<?, ?>) o).get(key);
+        }
+
+        @Override
+        public boolean isCacheable() {
+            return true;
+        }
+
+        @Override
+        public String getMethodName() {
+            return "get";
+        }
+    }
+}
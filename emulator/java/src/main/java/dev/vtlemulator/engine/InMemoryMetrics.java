@@ -0,0 +1,193 @@
+package dev.vtlemulator.engine;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link VTLMetrics} implementation that keeps per-template counters and latency histograms in
+ * memory. Recording only touches LongAdders and {@link LatencyHistogram}s, so it never blocks;
+ * {@link #snapshot()} returns an immutable copy for reporting.
+ *
+ * Like {@link PhaseStatistics}, the number of tracked templates is bounded and overflowing
+ * templates are aggregated under {@link PhaseStatistics#OTHER_TEMPLATES}.
+ */
+public class InMemoryMetrics implements VTLMetrics {
+    private final int maxTemplates;
+    private final Map<String, TemplateCounters> templates = new ConcurrentHashMap<>();
+
+    public InMemoryMetrics() {
+        this(PhaseStatistics.DEFAULT_MAX_TEMPLATES);
+    }
+
+    public InMemoryMetrics(int maxTemplates) {
+        this.maxTemplates = maxTemplates;
+    }
+
+    @Override
+    public void recordRender(String templateId, long durationNanos, long inputBytes, long outputBytes, boolean error) {
+        TemplateCounters counters = counters(templateId);
+        counters.renders.increment();
+        if (error) {
+            counters.errors.increment();
+        }
+        counters.inputBytes.add(inputBytes);
+        counters.outputBytes.add(outputBytes);
+        counters.latency.record(durationNanos);
+    }
+
+    @Override
+    public void recordCacheAccess(String cache, String templateId, boolean hit) {
+        CacheCounters counters = counters(templateId).caches.computeIfAbsent(cache, c -> new CacheCounters());
+        if (hit) {
+            counters.hits.increment();
+        } else {
+            counters.misses.increment();
+        }
+    }
+
+    public Snapshot snapshot() {
+        Map<String, TemplateMetrics> snapshot = new LinkedHashMap<>();
+        templates.forEach((templateId, counters) -> snapshot.put(templateId, counters.snapshot()));
+        return new Snapshot(snapshot);
+    }
+
+    public void reset() {
+        templates.clear();
+    }
+
+    private TemplateCounters counters(String templateId) {
+        TemplateCounters counters = templates.get(templateId);
+        if (counters == null) {
+            String key = templates.size() < maxTemplates ? templateId : PhaseStatistics.OTHER_TEMPLATES;
+            counters = templates.computeIfAbsent(key, k -> new TemplateCounters());
+        }
+        return counters;
+    }
+
+    private static class TemplateCounters {
+        private final LongAdder renders = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder inputBytes = new LongAdder();
+        private final LongAdder outputBytes = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final Map<String, CacheCounters> caches = new ConcurrentHashMap<>();
+
+        TemplateMetrics snapshot() {
+            Map<String, CacheStats> cacheStats = new LinkedHashMap<>();
+            caches.forEach((cache, counters) -> cacheStats.put(cache, new CacheStats(counters.hits.sum(), counters.misses.sum())));
+            return new TemplateMetrics(renders.sum(), errors.sum(), inputBytes.sum(), outputBytes.sum(),
+                    latency.snapshot(), Collections.unmodifiableMap(cacheStats));
+        }
+    }
+
+    private static class CacheCounters {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+    }
+
+    /**
+     * Point-in-time copy of all template metrics.
+     */
+    public static class Snapshot {
+        private final Map<String, TemplateMetrics> templates;
+
+        Snapshot(Map<String, TemplateMetrics> templates) {
+            this.templates = Collections.unmodifiableMap(templates);
+        }
+
+        public Map<String, TemplateMetrics> getTemplates() {
+            return templates;
+        }
+
+        public TemplateMetrics getTemplate(String templateId) {
+            return templates.get(templateId);
+        }
+
+        public long getTotalRenders() {
+            return templates.values().stream().mapToLong(TemplateMetrics::getRenders).sum();
+        }
+
+        public long getTotalErrors() {
+            return templates.values().stream().mapToLong(TemplateMetrics::getErrors).sum();
+        }
+    }
+
+    public static class TemplateMetrics {
+        private final long renders;
+        private final long errors;
+        private final long inputBytes;
+        private final long outputBytes;
+        private final LatencyHistogram.Snapshot latency;
+        private final Map<String, CacheStats> caches;
+
+        TemplateMetrics(long renders, long errors, long inputBytes, long outputBytes,
+                        LatencyHistogram.Snapshot latency, Map<String, CacheStats> caches) {
+            this.renders = renders;
+            this.errors = errors;
+            this.inputBytes = inputBytes;
+            this.outputBytes = outputBytes;
+            this.latency = latency;
+            this.caches = caches;
+        }
+
+        public long getRenders() {
+            return renders;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getInputBytes() {
+            return inputBytes;
+        }
+
+        public long getOutputBytes() {
+            return outputBytes;
+        }
+
+        /**
+         * Render latency in nanoseconds.
+         */
+        public LatencyHistogram.Snapshot getLatency() {
+            return latency;
+        }
+
+        /**
+         * Cache statistics by cache name, e.g. {@link VTLMetrics#TEMPLATE_CACHE}.
+         */
+        public Map<String, CacheStats> getCaches() {
+            return caches;
+        }
+
+        public CacheStats getCache(String cache) {
+            return caches.getOrDefault(cache, new CacheStats(0, 0));
+        }
+    }
+
+    public static class CacheStats {
+        private final long hits;
+        private final long misses;
+
+        CacheStats(long hits, long misses) {
+            this.hits = hits;
+            this.misses = misses;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public double getHitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+}
@@ -6,8 +6,10 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 public class InputFunctions {
     private final Map<String, Object> context;
     private final Map<String, Object> input;
-    private final String inputString;
+    private final TextSource inputString;
     private final ObjectMapper objectMapper;
+    private final boolean inputParsedFromBody;
+    private final boolean preserveNumbers;
     
     public InputFunctions(Map<String, Object> context) {
         this(context, context, "");
@@ -18,10 +20,32 @@ public class InputFunctions {
     }
     
     public InputFunctions(Map<String, Object> context, Map<String, Object> input, String inputString) {
+        this(context, input, inputString, new ObjectMapper(), false);
+    }
+
+    /**
+     * @param inputParsedFromBody whether {@code input} is the parsed {@code inputString} and the
+     *                            template can't change it, which lets $input.json('$') stream the
+     *                            body instead of serializing the map
+     */
+    InputFunctions(Map<String, Object> context, Map<String, Object> input, String inputString,
+                   ObjectMapper objectMapper, boolean inputParsedFromBody) {
+        this(context, input, TextSource.of(inputString), objectMapper, inputParsedFromBody, false);
+    }
+
+    /**
+     * @param inputString     the body, decoded to a String only if $input.body is read
+     * @param preserveNumbers whether the streamed $input.json('$') keeps numbers as written, like
+     *                        the lazy numbers of {@code input}
+     */
+    InputFunctions(Map<String, Object> context, Map<String, Object> input, TextSource inputString,
+                   ObjectMapper objectMapper, boolean inputParsedFromBody, boolean preserveNumbers) {
         this.context = context;
         this.input = input;
         this.inputString = inputString;
-        this.objectMapper = new ObjectMapper();
+        this.objectMapper = objectMapper;
+        this.inputParsedFromBody = inputParsedFromBody;
+        this.preserveNumbers = preserveNumbers;
     }
     
     /**
@@ -109,6 +133,11 @@ public class InputFunctions {
         
         // If jsonPath is just "", return the entire input as JSON string
         if (jsonPath.equals("")) {
+            // Same text as serializing the parsed input, without walking the map
+            String body = inputParsedFromBody ? JsonMinifier.minify(objectMapper, inputString, preserveNumbers) : null;
+            if (body != null) {
+                return body;
+            }
             try {
                 return objectMapper.writeValueAsString(input);
             } catch (Exception e) {
@@ -171,13 +200,21 @@ public class InputFunctions {
      * You can use $input.body to preserve entire floating point numbers, such as 10.00
      */
     public String body() {
-        return inputString;
+        return inputString.text();
     }
 
     public String getBody() {
         return body();
     }
 
+    /**
+     * What templates get for $input.body: a {@link MappedText} view for a mapped body, which is
+     * decoded only when its characters are read, the String otherwise.
+     */
+    CharSequence bodyView() {
+        return inputString.view();
+    }
+
     public Map<String, Object> params() {
         Object params = context.get("params");
         if (params instanceof Map) {
@@ -0,0 +1,107 @@
+package dev.vtlemulator.engine;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+
+/**
+ * Streaming equivalent of {@code mapper.writeValueAsString(mapper.readValue(json, Object.class))}:
+ * copies the first JSON value token by token from the parser to a generator instead of building
+ * the object tree. Numbers and strings go through the same parser and generator, so the result is
+ * the same text (10.00 still becomes 10.0 and trailing content is still ignored), unless numbers
+ * are preserved, which copies them as written (for bodies parsed with lazy {@link JsonNumber}s).
+ */
+final class JsonMinifier {
+    private JsonMinifier() {
+    }
+
+    /**
+     * Returns the minified value, or null when the text is not JSON or the result might differ
+     * from the tree round trip (duplicate keys, which a map collapses); callers then fall back to
+     * the object tree.
+     */
+    static String minify(ObjectMapper objectMapper, String json) {
+        return minify(objectMapper, json, false);
+    }
+
+    static String minify(ObjectMapper objectMapper, String json, boolean preserveNumbers) {
+        return json == null ? null : minify(objectMapper, TextSource.of(json), preserveNumbers);
+    }
+
+    static String minify(ObjectMapper objectMapper, TextSource json, boolean preserveNumbers) {
+        if (json.isNull()) {
+            return null;
+        }
+        try (JsonParser parser = json.createParser(objectMapper)) {
+            if (!start(parser)) {
+                return null;
+            }
+            OutputBuffer buffer = new OutputBuffer(json.length());
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(buffer)) {
+                copy(parser, generator, preserveNumbers);
+            }
+            return buffer.toString();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Same as {@link #minify(ObjectMapper, String, boolean)}, encoded to UTF-8 by the generator
+     * instead of going through a String. Characters outside the BMP are only written as the String
+     * variant writes them (unescaped) when the mapper's factory enables
+     * {@code JsonWriteFeature.COMBINE_UNICODE_SURROGATES_IN_UTF8}.
+     */
+    static byte[] minifyToUtf8(ObjectMapper objectMapper, String json, boolean preserveNumbers) {
+        if (json == null) {
+            return null;
+        }
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            if (!start(parser)) {
+                return null;
+            }
+            ByteArrayBuilder buffer = new ByteArrayBuilder(json.length());
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(buffer, JsonEncoding.UTF8)) {
+                copy(parser, generator, preserveNumbers);
+            }
+            return buffer.toByteArray();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static boolean start(JsonParser parser) throws IOException {
+        parser.enable(JsonParser.Feature.STRICT_DUPLICATE_DETECTION);
+        return parser.nextToken() != null;
+    }
+
+    private static void copy(JsonParser parser, JsonGenerator generator, boolean preserveNumbers) throws IOException {
+        if (preserveNumbers) {
+            copyPreservingNumbers(parser, generator);
+        } else {
+            generator.copyCurrentStructure(parser);
+        }
+    }
+
+    private static void copyPreservingNumbers(JsonParser parser, JsonGenerator generator) throws IOException {
+        int depth = 0;
+        do {
+            JsonToken token = parser.currentToken();
+            if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+                generator.writeNumber(parser.getText());
+            } else {
+                generator.copyCurrentEvent(parser);
+            }
+            if (token.isStructStart()) {
+                depth++;
+            } else if (token.isStructEnd()) {
+                depth--;
+            }
+        } while (depth > 0 && parser.nextToken() != null);
+    }
+}
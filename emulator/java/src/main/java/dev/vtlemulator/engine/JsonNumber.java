@@ -0,0 +1,129 @@
+package dev.vtlemulator.engine;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A number of a request body parsed with lazy numbers (see {@link CompactJson}): a slice of the
+ * body text (or of its UTF-8 bytes), converted only when its value is needed.
+ *
+ * {@link #toString()} returns the text as written in the body (10.00 stays 10.00), which is what
+ * rendering and JSON serialization emit. The value, for arithmetic, comparisons and the
+ * {@link Number} methods, is the one {@code ObjectMapper.readValue} would have produced: Integer,
+ * Long or BigInteger for integers, Double otherwise. It is parsed again on every use; templates
+ * reach it through {@link NumberOperandNode} for operands and through {@link FunctionUberspect}
+ * for method arguments and Number methods JsonNumber doesn't have (compareTo, ...).
+ */
+final class JsonNumber extends Number {
+    private static final long serialVersionUID = 1L;
+
+    // a String, or a byte[] holding UTF-8 (number text is ASCII)
+    private final Object source;
+    private final int offset;
+    private final int length;
+
+    JsonNumber(String source, int offset, int length) {
+        this((Object) source, offset, length);
+    }
+
+    JsonNumber(byte[] source, int offset, int length) {
+        this((Object) source, offset, length);
+    }
+
+    private JsonNumber(Object source, int offset, int length) {
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * The Integer, Long, BigInteger or Double this number stands for.
+     */
+    Number value() {
+        String text = toString();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '.' || c == 'e' || c == 'E') {
+                return Double.valueOf(text);
+            }
+        }
+        if (length <= 9) {
+            return Integer.valueOf(text);
+        }
+        if (length <= 18) {
+            long value = Long.parseLong(text);
+            return value == (int) value ? Integer.valueOf((int) value) : Long.valueOf(value);
+        }
+        BigInteger value = new BigInteger(text);
+        if (value.bitLength() < 32) {
+            return value.intValue();
+        }
+        return value.bitLength() < 64 ? Long.valueOf(value.longValue()) : value;
+    }
+
+    /**
+     * The Number of {@code value} when it is lazy, {@code value} itself otherwise.
+     */
+    static Object materialize(Object value) {
+        return value instanceof JsonNumber ? ((JsonNumber) value).value() : value;
+    }
+
+    /**
+     * {@code values} with its lazy numbers converted, or {@code values} itself when it has none.
+     */
+    static Object[] materialize(Object[] values) {
+        Object[] converted = values;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] instanceof JsonNumber) {
+                if (converted == values) {
+                    converted = values.clone();
+                }
+                converted[i] = ((JsonNumber) values[i]).value();
+            }
+        }
+        return converted;
+    }
+
+    @Override
+    public int intValue() {
+        return value().intValue();
+    }
+
+    @Override
+    public long longValue() {
+        return value().longValue();
+    }
+
+    @Override
+    public float floatValue() {
+        return value().floatValue();
+    }
+
+    @Override
+    public double doubleValue() {
+        return value().doubleValue();
+    }
+
+    /**
+     * Equal to another lazy number or a Number with the same value (so a JsonNumber holding 2
+     * equals Integer 2, like the Integer an eager parse gives).
+     */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Number && value().equals(materialize(other));
+    }
+
+    @Override
+    public int hashCode() {
+        return value().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        if (source instanceof byte[]) {
+            return new String((byte[]) source, offset, length, StandardCharsets.ISO_8859_1);
+        }
+        String text = (String) source;
+        return offset == 0 && length == text.length() ? text : text.substring(offset, offset + length);
+    }
+}
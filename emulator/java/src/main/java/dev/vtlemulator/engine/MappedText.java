@@ -0,0 +1,63 @@
+package dev.vtlemulator.engine;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@code $input.body} of a memory-mapped body: the UTF-8 bytes as a {@link CharSequence}, decoded
+ * to a String the first time its characters are needed. {@link #isEmpty()} never decodes, and
+ * {@link #length()} does not for ASCII bodies. Velocity converts it to a String for String
+ * parameters (e.g. {@code $util.parseJson($input.body)}), and rendering writes {@link #toString()}.
+ */
+final class MappedText implements CharSequence {
+    private final ByteBuffer bytes;
+    private int length = -1;
+    private String text;
+
+    MappedText(ByteBuffer bytes) {
+        this.bytes = bytes.duplicate();
+    }
+
+    @Override
+    public int length() {
+        if (text != null) {
+            return text.length();
+        }
+        if (length < 0) {
+            length = isAscii() ? bytes.remaining() : toString().length();
+        }
+        return length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return !bytes.hasRemaining();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        if (text == null) {
+            text = StandardCharsets.UTF_8.decode(bytes.duplicate()).toString();
+        }
+        return text;
+    }
+
+    private boolean isAscii() {
+        for (int i = bytes.position(), end = bytes.limit(); i < end; i++) {
+            if (bytes.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
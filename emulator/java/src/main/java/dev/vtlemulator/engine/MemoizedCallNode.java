@@ -0,0 +1,38 @@
+package dev.vtlemulator.engine;
+
+import org.apache.velocity.context.InternalContextAdapter;
+import org.apache.velocity.exception.MethodInvocationException;
+import org.apache.velocity.runtime.parser.node.Node;
+
+/**
+ * Node wrapper inserted by {@link TemplateOptimizer} around a pure method call with constant
+ * arguments: the first execution in a render invokes the method, later ones (from the same call
+ * site or another one with the same call text) reuse its result.
+ */
+class MemoizedCallNode extends DelegatingNode {
+    private final String call;
+
+    MemoizedCallNode(Node delegate, String call) {
+        super(delegate);
+        this.call = call;
+    }
+
+    String getCall() {
+        return call;
+    }
+
+    @Override
+    public Object execute(Object o, InternalContextAdapter context) throws MethodInvocationException {
+        Object memo = context.get(CallMemo.CONTEXT_KEY);
+        if (!(memo instanceof CallMemo)) {
+            return delegate.execute(o, context);
+        }
+        CallMemo callMemo = (CallMemo) memo;
+        Object value = callMemo.get(call, o);
+        if (value == CallMemo.MISSING) {
+            value = delegate.execute(o, context);
+            callMemo.put(call, o, value);
+        }
+        return value;
+    }
+}
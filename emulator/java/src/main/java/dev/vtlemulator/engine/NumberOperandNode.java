@@ -0,0 +1,22 @@
+package dev.vtlemulator.engine;
+
+import org.apache.velocity.context.InternalContextAdapter;
+import org.apache.velocity.exception.MethodInvocationException;
+import org.apache.velocity.runtime.parser.node.Node;
+
+/**
+ * Node wrapper inserted by {@link TemplateOptimizer#wrapNumberOperands} around a reference that is
+ * an operand of arithmetic, a comparison or an index: a lazy {@link JsonNumber} value is converted
+ * to its Integer, Long, BigInteger or Double first, so Velocity computes with the same types as
+ * for an eagerly parsed body.
+ */
+class NumberOperandNode extends DelegatingNode {
+    NumberOperandNode(Node delegate) {
+        super(delegate);
+    }
+
+    @Override
+    public Object value(InternalContextAdapter context) throws MethodInvocationException {
+        return JsonNumber.materialize(delegate.value(context));
+    }
+}
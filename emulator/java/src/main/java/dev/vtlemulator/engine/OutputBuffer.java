@@ -0,0 +1,60 @@
+package dev.vtlemulator.engine;
+
+import java.io.Writer;
+
+/**
+ * Unsynchronized replacement for {@link java.io.StringWriter} (which appends to a StringBuffer),
+ * used for template output and minification.
+ */
+final class OutputBuffer extends Writer {
+    private final StringBuilder buffer;
+
+    OutputBuffer(int capacity) {
+        this.buffer = new StringBuilder(capacity);
+    }
+
+    @Override
+    public void write(int c) {
+        buffer.append((char) c);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) {
+        buffer.append(chars, offset, length);
+    }
+
+    @Override
+    public void write(String str) {
+        buffer.append(str);
+    }
+
+    @Override
+    public void write(String str, int offset, int length) {
+        buffer.append(str, offset, offset + length);
+    }
+
+    @Override
+    public Writer append(CharSequence csq) {
+        buffer.append(csq);
+        return this;
+    }
+
+    @Override
+    public Writer append(char c) {
+        buffer.append(c);
+        return this;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public String toString() {
+        return buffer.toString();
+    }
+}
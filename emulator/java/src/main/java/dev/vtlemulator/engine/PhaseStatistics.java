@@ -0,0 +1,89 @@
+package dev.vtlemulator.engine;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Aggregates {@link PhaseTimings} into one latency histogram per template and phase.
+ *
+ * The number of tracked templates is bounded so that processors fed with ad-hoc templates don't
+ * grow without limit; once the limit is reached, new templates are aggregated under
+ * {@link #OTHER_TEMPLATES}.
+ */
+public class PhaseStatistics {
+    public static final String OTHER_TEMPLATES = "(other)";
+    public static final int DEFAULT_MAX_TEMPLATES = 1024;
+
+    private final int maxTemplates;
+    private final Map<String, TemplatePhases> templates = new ConcurrentHashMap<>();
+
+    public PhaseStatistics() {
+        this(DEFAULT_MAX_TEMPLATES);
+    }
+
+    public PhaseStatistics(int maxTemplates) {
+        this.maxTemplates = maxTemplates;
+    }
+
+    public void record(String templateId, PhaseTimings timings) {
+        TemplatePhases phases = templates.get(templateId);
+        if (phases == null) {
+            String key = templates.size() < maxTemplates ? templateId : OTHER_TEMPLATES;
+            phases = templates.computeIfAbsent(key, k -> new TemplatePhases());
+        }
+        phases.record(timings);
+    }
+
+    /**
+     * Returns a snapshot of the phase histograms (in nanoseconds) per template ID.
+     */
+    public Map<String, Map<PhaseTimings.Phase, LatencyHistogram.Snapshot>> snapshot() {
+        Map<String, Map<PhaseTimings.Phase, LatencyHistogram.Snapshot>> snapshot = new LinkedHashMap<>();
+        templates.forEach((templateId, phases) -> snapshot.put(templateId, phases.snapshot()));
+        return Collections.unmodifiableMap(snapshot);
+    }
+
+    /**
+     * Returns a snapshot of the total render time histogram (in nanoseconds) per template ID.
+     */
+    public Map<String, LatencyHistogram.Snapshot> totals() {
+        Map<String, LatencyHistogram.Snapshot> totals = new LinkedHashMap<>();
+        templates.forEach((templateId, phases) -> totals.put(templateId, phases.total.snapshot()));
+        return Collections.unmodifiableMap(totals);
+    }
+
+    public void reset() {
+        templates.clear();
+    }
+
+    private static class TemplatePhases {
+        private static final PhaseTimings.Phase[] PHASES = PhaseTimings.Phase.values();
+
+        private final LatencyHistogram[] phases = new LatencyHistogram[PHASES.length];
+        private final LatencyHistogram total = new LatencyHistogram();
+
+        TemplatePhases() {
+            for (int i = 0; i < phases.length; i++) {
+                phases[i] = new LatencyHistogram();
+            }
+        }
+
+        void record(PhaseTimings timings) {
+            for (PhaseTimings.Phase phase : PHASES) {
+                phases[phase.ordinal()].record(timings.getNanos(phase));
+            }
+            total.record(timings.getTotalNanos());
+        }
+
+        Map<PhaseTimings.Phase, LatencyHistogram.Snapshot> snapshot() {
+            Map<PhaseTimings.Phase, LatencyHistogram.Snapshot> snapshot = new EnumMap<>(PhaseTimings.Phase.class);
+            for (PhaseTimings.Phase phase : PHASES) {
+                snapshot.put(phase, phases[phase.ordinal()].snapshot());
+            }
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package dev.vtlemulator.engine;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Wall-clock time spent in each phase of a single render, measured with System.nanoTime().
+ *
+ * Only created when phase timing is enabled on the {@link VTLProcessor}; a disabled processor
+ * never allocates one and skips every clock read.
+ */
+public class PhaseTimings {
+    public enum Phase {
+        CONTEXT_PARSE,
+        INPUT_PARSE,
+        TEMPLATE_PARSE,
+        EVALUATE,
+        MINIFY
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final long[] nanos = new long[PHASES.length];
+    private long last;
+
+    PhaseTimings() {
+        last = System.nanoTime();
+    }
+
+    /**
+     * Charges the time elapsed since the previous lap (or since creation) to the given phase.
+     */
+    void lap(Phase phase) {
+        long now = System.nanoTime();
+        nanos[phase.ordinal()] += now - last;
+        last = now;
+    }
+
+    public long getNanos(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    public long getTotalNanos() {
+        long total = 0;
+        for (long value : nanos) {
+            total += value;
+        }
+        return total;
+    }
+
+    public Map<Phase, Long> asMap() {
+        Map<Phase, Long> map = new EnumMap<>(Phase.class);
+        for (Phase phase : PHASES) {
+            map.put(phase, nanos[phase.ordinal()]);
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return asMap() + " total=" + getTotalNanos();
+    }
+}
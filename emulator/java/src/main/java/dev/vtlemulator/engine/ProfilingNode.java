@@ -0,0 +1,66 @@
+package dev.vtlemulator.engine;
+
+import org.apache.velocity.context.InternalContextAdapter;
+import org.apache.velocity.exception.MethodInvocationException;
+import org.apache.velocity.exception.ParseErrorException;
+import org.apache.velocity.exception.ResourceNotFoundException;
+import org.apache.velocity.runtime.parser.node.Node;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Node wrapper inserted by {@link TemplateProfiler}: delegates everything to the wrapped node and
+ * reports the time spent rendering, evaluating or executing it.
+ */
+class ProfilingNode extends DelegatingNode {
+    private final TemplateProfiler profiler;
+    private final TemplateProfiler.Site site;
+
+    ProfilingNode(Node delegate, TemplateProfiler profiler, TemplateProfiler.Site site) {
+        super(delegate);
+        this.profiler = profiler;
+        this.site = site;
+    }
+
+    @Override
+    public boolean render(InternalContextAdapter context, Writer writer)
+            throws IOException, MethodInvocationException, ParseErrorException, ResourceNotFoundException {
+        profiler.enter(site);
+        try {
+            return delegate.render(context, writer);
+        } finally {
+            profiler.exit();
+        }
+    }
+
+    @Override
+    public boolean evaluate(InternalContextAdapter context) throws MethodInvocationException {
+        profiler.enter(site);
+        try {
+            return delegate.evaluate(context);
+        } finally {
+            profiler.exit();
+        }
+    }
+
+    @Override
+    public Object value(InternalContextAdapter context) throws MethodInvocationException {
+        profiler.enter(site);
+        try {
+            return delegate.value(context);
+        } finally {
+            profiler.exit();
+        }
+    }
+
+    @Override
+    public Object execute(Object o, InternalContextAdapter context) throws MethodInvocationException {
+        profiler.enter(site);
+        try {
+            return delegate.execute(o, context);
+        } finally {
+            profiler.exit();
+        }
+    }
+}
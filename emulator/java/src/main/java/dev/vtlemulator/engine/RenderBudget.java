@@ -0,0 +1,81 @@
+package dev.vtlemulator.engine;
+
+import java.time.Duration;
+
+/**
+ * Per-render limits enforced by {@link VTLProcessor}: iterations of a single #foreach loop, size of
+ * the rendered output in characters, and wall-clock time from the start of the render. A render that
+ * exceeds one of them is aborted with a {@link RenderBudgetExceededException}.
+ *
+ * Budgets are immutable; {@link #UNLIMITED} is the processor default, {@link #aws()} mirrors the
+ * #foreach limit of API Gateway.
+ */
+public final class RenderBudget {
+    /**
+     * API Gateway stops mapping templates whose #foreach loops run more than 1000 times.
+     */
+    public static final int AWS_FOREACH_LIMIT = 1000;
+
+    public static final RenderBudget UNLIMITED = new RenderBudget(0, 0, null);
+
+    private final int maxForeachIterations;
+    private final long maxOutputChars;
+    private final Duration timeout;
+
+    private RenderBudget(int maxForeachIterations, long maxOutputChars, Duration timeout) {
+        this.maxForeachIterations = maxForeachIterations;
+        this.maxOutputChars = maxOutputChars;
+        this.timeout = timeout;
+    }
+
+    public static RenderBudget aws() {
+        return UNLIMITED.withMaxForeachIterations(AWS_FOREACH_LIMIT);
+    }
+
+    /**
+     * Limits the iterations of every single #foreach loop; 0 disables the limit. Nested loops are
+     * counted separately, use {@link #withTimeout(Duration)} to bound their product.
+     */
+    public RenderBudget withMaxForeachIterations(int maxForeachIterations) {
+        return new RenderBudget(Math.max(0, maxForeachIterations), maxOutputChars, timeout);
+    }
+
+    /**
+     * Limits the output written by the template, before minification; 0 disables the limit.
+     */
+    public RenderBudget withMaxOutputChars(long maxOutputChars) {
+        return new RenderBudget(maxForeachIterations, Math.max(0, maxOutputChars), timeout);
+    }
+
+    /**
+     * Limits the wall-clock time of a render; null or a non-positive duration disables the limit.
+     * The deadline is checked between #foreach iterations and output writes, so a single slow
+     * method call is not interrupted.
+     */
+    public RenderBudget withTimeout(Duration timeout) {
+        return new RenderBudget(maxForeachIterations, maxOutputChars,
+                timeout != null && !timeout.isNegative() && !timeout.isZero() ? timeout : null);
+    }
+
+    public int getMaxForeachIterations() {
+        return maxForeachIterations;
+    }
+
+    public long getMaxOutputChars() {
+        return maxOutputChars;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public boolean isUnlimited() {
+        return maxForeachIterations == 0 && maxOutputChars == 0 && timeout == null;
+    }
+
+    @Override
+    public String toString() {
+        return "RenderBudget{maxForeachIterations=" + maxForeachIterations + ", maxOutputChars=" + maxOutputChars
+                + ", timeout=" + timeout + "}";
+    }
+}
@@ -0,0 +1,66 @@
+package dev.vtlemulator.engine;
+
+/**
+ * Thrown when a render exceeds its {@link RenderBudget}. It is reported as the error of the
+ * {@link RenderResult}; {@link #getKind()} tells which limit was hit.
+ */
+public class RenderBudgetExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public enum Kind {
+        FOREACH_ITERATIONS,
+        OUTPUT_SIZE,
+        TIMEOUT
+    }
+
+    private final Kind kind;
+    private final long limit;
+    private final int line;
+    private final int column;
+
+    RenderBudgetExceededException(Kind kind, long limit, int line, int column) {
+        super(message(kind, limit, line, column));
+        this.kind = kind;
+        this.limit = limit;
+        this.line = line;
+        this.column = column;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * The limit that was exceeded: iterations, characters or milliseconds depending on the kind.
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * Template line where the limit was hit, or 0 when unknown.
+     */
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    private static String message(Kind kind, long limit, int line, int column) {
+        String message;
+        switch (kind) {
+            case FOREACH_ITERATIONS:
+                message = "#foreach loop exceeded " + limit + " iterations";
+                break;
+            case OUTPUT_SIZE:
+                message = "output exceeded " + limit + " characters";
+                break;
+            default:
+                message = "render exceeded " + limit + " ms";
+                break;
+        }
+        return "Render budget exceeded: " + message + (line > 0 ? " at line " + line + ", column " + column : "");
+    }
+}
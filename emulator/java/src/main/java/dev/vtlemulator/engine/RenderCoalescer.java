@@ -0,0 +1,98 @@
+package dev.vtlemulator.engine;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution of identical renders: while a render of a key is running, other threads
+ * rendering the same key wait for it and get its result instead of rendering again. Nothing is
+ * kept once the render completes, so this only saves work for renders that actually overlap.
+ */
+final class RenderCoalescer {
+    private final Map<Key, CompletableFuture<RenderResult>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Runs {@code render} unless a render of {@code key} is in flight, in which case its result is
+     * returned. Each call is recorded as an access to {@link VTLMetrics#RENDER_COALESCING}, a hit
+     * when the result was shared.
+     */
+    RenderResult render(Key key, Supplier<RenderResult> render, VTLMetrics metrics) {
+        CompletableFuture<RenderResult> own = new CompletableFuture<>();
+        CompletableFuture<RenderResult> running = inFlight.putIfAbsent(key, own);
+        metrics.recordCacheAccess(VTLMetrics.RENDER_COALESCING, key.templateId, running != null);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                // the render failed with an unchecked exception; rethrow it as is
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e;
+            }
+        }
+        try {
+            RenderResult result = render.get();
+            own.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    int inFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Template, template ID, body and context of a render. The hash is computed once, the strings
+     * are compared only when the hashes match.
+     */
+    static final class Key {
+        private final String templateId;
+        private final String template;
+        private final String input;
+        private final String contextJson;
+        private final int hash;
+
+        Key(String templateId, String template, String input, String contextJson) {
+            this.templateId = templateId;
+            this.template = template;
+            this.input = input;
+            this.contextJson = contextJson;
+            int h = templateId.hashCode();
+            h = 31 * h + template.hashCode();
+            h = 31 * h + (input != null ? input.hashCode() : 0);
+            this.hash = 31 * h + (contextJson != null ? contextJson.hashCode() : 0);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return hash == key.hash && templateId.equals(key.templateId) && template.equals(key.template)
+                    && Objects.equals(input, key.input)
+                    && Objects.equals(contextJson, key.contextJson);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package dev.vtlemulator.engine;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Java Flight Recorder events emitted by {@link VTLProcessor}.
+ *
+ * The events are only written while a recording is running. Per-render events default to a 10 ms
+ * threshold so that a continuous recording only captures slow renders; compile events are rare and
+ * always recorded. Both can be changed with the usual JFR settings, e.g. in a .jfc file:
+ *
+ * <pre>
+ * &lt;event name="dev.vtlemulator.TemplateRender"&gt;
+ *   &lt;setting name="enabled"&gt;true&lt;/setting&gt;
+ *   &lt;setting name="threshold"&gt;0 ms&lt;/setting&gt;
+ * &lt;/event&gt;
+ * </pre>
+ *
+ * Sizes are UTF-8 byte counts, whether the render was given Strings, bytes or a file.
+ */
+final class RenderEvents {
+    static final String CATEGORY = "VTL Emulator";
+
+    private RenderEvents() {
+    }
+
+    @Name("dev.vtlemulator.TemplateCompile")
+    @Label("Template Compile")
+    @Description("Parsing of a template that was not in the template cache")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class TemplateCompile extends Event {
+        @Label("Template ID")
+        String templateId;
+
+        @Label("Template Size")
+        @DataAmount(DataAmount.BYTES)
+        long templateLength;
+    }
+
+    @Name("dev.vtlemulator.TemplateRender")
+    @Label("Template Render")
+    @Description("A complete VTLProcessor render, from context parsing to the minified output")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    @Threshold("10 ms")
+    static final class TemplateRender extends Event {
+        @Label("Template ID")
+        String templateId;
+
+        @Label("Input Size")
+        @DataAmount(DataAmount.BYTES)
+        long inputLength;
+
+        @Label("Context Size")
+        @DataAmount(DataAmount.BYTES)
+        long contextLength;
+
+        @Label("Output Size")
+        @DataAmount(DataAmount.BYTES)
+        long outputLength;
+
+        @Label("Template Cache Hit")
+        boolean templateCacheHit;
+
+        @Label("Error")
+        boolean error;
+    }
+
+    @Name("dev.vtlemulator.InputParse")
+    @Label("Input Parse")
+    @Description("Parsing of the context JSON and the request body")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    @Threshold("10 ms")
+    static final class InputParse extends Event {
+        @Label("Template ID")
+        String templateId;
+
+        @Label("Input Size")
+        @DataAmount(DataAmount.BYTES)
+        long inputLength;
+
+        @Label("Context Size")
+        @DataAmount(DataAmount.BYTES)
+        long contextLength;
+
+        @Label("Input Is JSON")
+        boolean inputJson;
+    }
+
+    @Name("dev.vtlemulator.OutputMinify")
+    @Label("Output Minify")
+    @Description("Re-serialization of the rendered output when it is valid JSON")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    @Threshold("10 ms")
+    static final class OutputMinify extends Event {
+        @Label("Template ID")
+        String templateId;
+
+        @Label("Output Size")
+        @DataAmount(DataAmount.BYTES)
+        long outputLength;
+
+        @Label("Minified Size")
+        @DataAmount(DataAmount.BYTES)
+        long minifiedLength;
+
+        @Label("Output Is JSON")
+        boolean json;
+    }
+}
@@ -0,0 +1,97 @@
+package dev.vtlemulator.engine;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Per-render enforcement of a {@link RenderBudget}. Lives in the Velocity context under
+ * {@link #CONTEXT_KEY} (not a valid reference name, so templates can't reach it) where
+ * {@link BudgetedForeach} picks it up, and wraps the output writer.
+ */
+final class RenderGuard {
+    static final String CONTEXT_KEY = "vtl.renderGuard";
+
+    private final RenderBudget budget;
+    private final long deadline;
+    private int loopIterations;
+
+    RenderGuard(RenderBudget budget, long startNanos) {
+        this.budget = budget;
+        this.deadline = budget.getTimeout() != null ? startNanos + budget.getTimeout().toNanos() : 0L;
+    }
+
+    /**
+     * Starts counting a new loop and returns the count of the enclosing loop, to be handed back to
+     * {@link #endLoop(int)}.
+     */
+    int beginLoop() {
+        int outer = loopIterations;
+        loopIterations = 0;
+        return outer;
+    }
+
+    void endLoop(int outer) {
+        loopIterations = outer;
+    }
+
+    void iteration(int line, int column) {
+        int max = budget.getMaxForeachIterations();
+        if (max > 0 && ++loopIterations > max) {
+            throw new RenderBudgetExceededException(RenderBudgetExceededException.Kind.FOREACH_ITERATIONS, max, line, column);
+        }
+        checkDeadline(line, column);
+    }
+
+    void checkDeadline(int line, int column) {
+        if (deadline != 0L && System.nanoTime() - deadline > 0) {
+            throw new RenderBudgetExceededException(RenderBudgetExceededException.Kind.TIMEOUT,
+                    budget.getTimeout().toMillis(), line, column);
+        }
+    }
+
+    Writer wrap(Writer writer) {
+        if (budget.getMaxOutputChars() == 0 && deadline == 0L) {
+            return writer;
+        }
+        return new Writer() {
+            private long written;
+
+            @Override
+            public void write(int c) throws IOException {
+                count(1);
+                writer.write(c);
+            }
+
+            @Override
+            public void write(char[] chars, int offset, int length) throws IOException {
+                count(length);
+                writer.write(chars, offset, length);
+            }
+
+            @Override
+            public void write(String s, int offset, int length) throws IOException {
+                count(length);
+                writer.write(s, offset, length);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                writer.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                writer.close();
+            }
+
+            private void count(int length) {
+                written += length;
+                long max = budget.getMaxOutputChars();
+                if (max > 0 && written > max) {
+                    throw new RenderBudgetExceededException(RenderBudgetExceededException.Kind.OUTPUT_SIZE, max, 0, 0);
+                }
+                checkDeadline(0, 0);
+            }
+        };
+    }
+}
@@ -0,0 +1,68 @@
+package dev.vtlemulator.engine;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Result of {@link VTLProcessor#render}: the rendered output plus what we know about the render.
+ *
+ * When rendering fails, the output holds the same "Error processing template: ..." message that
+ * {@link VTLProcessor#process} returns, and {@link #getError()} holds the exception.
+ *
+ * Results of the byte renders hold the UTF-8 output; {@link #getOutput()} decodes it on each call.
+ */
+public class RenderResult {
+    private final String templateId;
+    private final String output;
+    private final byte[] outputBytes;
+    private final Exception error;
+    private final PhaseTimings timings;
+
+    RenderResult(String templateId, String output, Exception error, PhaseTimings timings) {
+        this(templateId, output, null, error, timings);
+    }
+
+    /**
+     * At least one of {@code output} and {@code outputBytes} is set.
+     */
+    RenderResult(String templateId, String output, byte[] outputBytes, Exception error, PhaseTimings timings) {
+        this.templateId = templateId;
+        this.output = output;
+        this.outputBytes = outputBytes;
+        this.error = error;
+        this.timings = timings;
+    }
+
+    public String getTemplateId() {
+        return templateId;
+    }
+
+    public String getOutput() {
+        return output != null ? output : new String(outputBytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The output encoded as UTF-8 (encoded on each call unless the render produced bytes).
+     */
+    public byte[] getOutputBytes() {
+        return outputBytes != null ? outputBytes : output.getBytes(StandardCharsets.UTF_8);
+    }
+
+    long outputUtf8Length() {
+        return outputBytes != null ? outputBytes.length : VTLProcessor.utf8Length(output);
+    }
+
+    public boolean isError() {
+        return error != null;
+    }
+
+    public Exception getError() {
+        return error;
+    }
+
+    /**
+     * Per-phase timings, or null when phase timing is disabled on the processor.
+     */
+    public PhaseTimings getTimings() {
+        return timings;
+    }
+}
@@ -0,0 +1,123 @@
+package dev.vtlemulator.engine;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of render outputs of deterministic templates (see
+ * {@link CompiledTemplate#isDeterministic()}), installed with {@link VTLProcessor#setResultCache}.
+ *
+ * Entries are keyed by the template and the inputs it can read: the body only if the template
+ * reads it, and only the context keys it references, so requests that differ elsewhere (request
+ * IDs, headers the template doesn't use, ...) share an entry. Keys keep the inputs and are compared
+ * in full, a hash match alone is never taken for a hit. Lookups are lock-free; when the cache is
+ * full an arbitrary entry is evicted, like in {@link TemplateCache}. Renders whose inputs and
+ * output together exceed the entry length limit are not cached.
+ */
+public class ResultCache {
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+    public static final int DEFAULT_MAX_ENTRY_LENGTH = 64 * 1024;
+
+    private final int maxEntries;
+    private final int maxEntryLength;
+    private final Map<Key, String> outputs = new ConcurrentHashMap<>();
+
+    public ResultCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_ENTRY_LENGTH);
+    }
+
+    /**
+     * @param maxEntries     number of outputs kept
+     * @param maxEntryLength largest body, context keys and output, in chars, that are cached
+     */
+    public ResultCache(int maxEntries, int maxEntryLength) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        if (maxEntryLength < 1) {
+            throw new IllegalArgumentException("maxEntryLength must be positive: " + maxEntryLength);
+        }
+        this.maxEntries = maxEntries;
+        this.maxEntryLength = maxEntryLength;
+    }
+
+    String get(Key key) {
+        return outputs.get(key);
+    }
+
+    void put(Key key, String output) {
+        if (key.length() + output.length() > maxEntryLength) {
+            return;
+        }
+        while (outputs.size() >= maxEntries) {
+            Iterator<Key> keys = outputs.keySet().iterator();
+            if (!keys.hasNext()) {
+                break;
+            }
+            outputs.remove(keys.next());
+        }
+        outputs.put(key, output);
+    }
+
+    public int size() {
+        return outputs.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public int getMaxEntryLength() {
+        return maxEntryLength;
+    }
+
+    public void clear() {
+        outputs.clear();
+    }
+
+    /**
+     * Template source, processor settings that change the output, the body (null when the template
+     * doesn't read it) and the referenced context keys as JSON.
+     */
+    static final class Key {
+        private final String template;
+        private final int settings;
+        private final String body;
+        private final String context;
+        private final int hash;
+
+        Key(String template, int settings, String body, String context) {
+            this.template = template;
+            this.settings = settings;
+            this.body = body;
+            this.context = context;
+            int h = 31 * template.hashCode() + settings;
+            h = 31 * h + (body != null ? body.hashCode() : 0);
+            this.hash = 31 * h + context.hashCode();
+        }
+
+        int length() {
+            return (body != null ? body.length() : 0) + context.length();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return hash == key.hash && settings == key.settings && template.equals(key.template)
+                    && Objects.equals(body, key.body) && context.equals(key.context);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
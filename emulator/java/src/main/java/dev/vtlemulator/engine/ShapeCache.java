@@ -0,0 +1,125 @@
+package dev.vtlemulator.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared object shapes ("hidden classes") for {@link CompactJson}: objects with the same keys in
+ * the same order share one key array (and lookup table) instead of each carrying its own, and the
+ * key strings are the ones the cache saw first, so parsed bodies of different requests hold the
+ * same key instances.
+ *
+ * Shapes form a transition tree: the empty shape leads to one shape per first key, each of those
+ * to one per second key, and so on. Parsing follows the tree key by key, so finding the shape of
+ * an object takes no allocation once its shape is known.
+ *
+ * The cache never evicts; it stops adding shapes once it holds {@code maxShapes}, and never adds
+ * shapes for objects with more than {@link #MAX_KEYS} keys, keys longer than
+ * {@link #MAX_KEY_LENGTH} characters, duplicate keys, or a key position that already has
+ * {@link #MAX_TRANSITIONS} alternatives. Objects without a shape get their own key array, as
+ * without a cache, so adversarial bodies cost at most the fixed size of the cache. Thread-safe.
+ */
+public final class ShapeCache {
+    public static final int DEFAULT_MAX_SHAPES = 4096;
+    static final int MAX_KEYS = 64;
+    static final int MAX_KEY_LENGTH = 128;
+    static final int MAX_TRANSITIONS = 64;
+
+    private final int maxShapes;
+    private final AtomicInteger size = new AtomicInteger();
+    private volatile Shape root = new Shape(new String[0]);
+
+    public ShapeCache() {
+        this(DEFAULT_MAX_SHAPES);
+    }
+
+    public ShapeCache(int maxShapes) {
+        if (maxShapes < 0) {
+            throw new IllegalArgumentException("maxShapes must not be negative");
+        }
+        this.maxShapes = maxShapes;
+    }
+
+    public int getMaxShapes() {
+        return maxShapes;
+    }
+
+    /**
+     * Number of shapes created so far, including the prefixes of longer shapes.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    public void clear() {
+        root = new Shape(new String[0]);
+        size.set(0);
+    }
+
+    Shape root() {
+        return root;
+    }
+
+    /**
+     * The shape of {@code parent}'s keys followed by {@code key}, or null when there is none and
+     * none may be created.
+     */
+    Shape next(Shape parent, String key) {
+        Shape child = parent.find(key);
+        if (child != null) {
+            return child;
+        }
+        if (parent.keys.length >= MAX_KEYS || key.length() > MAX_KEY_LENGTH || parent.contains(key)) {
+            return null;
+        }
+        synchronized (parent) {
+            child = parent.find(key);
+            if (child != null) {
+                return child;
+            }
+            if (parent.transitions.length >= MAX_TRANSITIONS || size.get() >= maxShapes) {
+                return null;
+            }
+            String[] keys = Arrays.copyOf(parent.keys, parent.keys.length + 1);
+            keys[parent.keys.length] = key;
+            child = new Shape(keys);
+            Shape[] transitions = Arrays.copyOf(parent.transitions, parent.transitions.length + 1);
+            transitions[parent.transitions.length] = child;
+            parent.transitions = transitions;
+            size.incrementAndGet();
+            return child;
+        }
+    }
+
+    static final class Shape {
+        private static final Shape[] NONE = new Shape[0];
+
+        final String[] keys;
+        final int[] index;
+        private volatile Shape[] transitions = NONE;
+
+        Shape(String[] keys) {
+            this.keys = keys;
+            this.index = CompactMap.index(keys);
+        }
+
+        private Shape find(String key) {
+            for (Shape child : transitions) {
+                String last = child.keys[child.keys.length - 1];
+                if (last == key || last.equals(key)) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        private boolean contains(String key) {
+            for (String existing : keys) {
+                if (existing.equals(key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package dev.vtlemulator.engine;
+
+import org.apache.velocity.context.InternalContextAdapter;
+import org.apache.velocity.runtime.parser.node.Node;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Replaces a static node (text, comment or #[[textblock]]#) once the template is initialized:
+ * the first node of a run of adjacent static nodes carries the text of the whole run and writes
+ * it in one call, the others write nothing.
+ */
+class StaticTextNode extends DelegatingNode {
+    private final String text;
+
+    StaticTextNode(Node delegate, String text) {
+        super(delegate);
+        this.text = text;
+    }
+
+    String getText() {
+        return text;
+    }
+
+    @Override
+    public boolean render(InternalContextAdapter context, Writer writer) throws IOException {
+        if (!text.isEmpty()) {
+            writer.write(text);
+        }
+        return true;
+    }
+}
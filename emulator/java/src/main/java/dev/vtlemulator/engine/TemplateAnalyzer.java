@@ -0,0 +1,284 @@
+package dev.vtlemulator.engine;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.runtime.RuntimeServices;
+import org.apache.velocity.runtime.parser.ParseException;
+import org.apache.velocity.runtime.parser.node.ASTAndNode;
+import org.apache.velocity.runtime.parser.node.ASTDirective;
+import org.apache.velocity.runtime.parser.node.ASTElseIfStatement;
+import org.apache.velocity.runtime.parser.node.ASTExpression;
+import org.apache.velocity.runtime.parser.node.ASTIdentifier;
+import org.apache.velocity.runtime.parser.node.ASTIfStatement;
+import org.apache.velocity.runtime.parser.node.ASTMethod;
+import org.apache.velocity.runtime.parser.node.ASTNotNode;
+import org.apache.velocity.runtime.parser.node.ASTOrNode;
+import org.apache.velocity.runtime.parser.node.ASTReference;
+import org.apache.velocity.runtime.parser.node.ASTStringLiteral;
+import org.apache.velocity.runtime.parser.node.Node;
+
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Compile-time analysis of a parsed template (run before {@link TemplateOptimizer} rewrites it).
+ *
+ * {@link #isDeterministic} tells whether a template renders the same output every time it is given
+ * the same body and context. The body, {@code $input} and {@code $util} are pure; what is not:
+ * <ul>
+ * <li>the {@code $context} values made up from the clock when the context doesn't supply them
+ * (requestTime, requestTimeEpoch and the request IDs);</li>
+ * <li>rendering one of the function objects ({@code $context}, {@code $input}, {@code $util} or a
+ * nested context object) as text, which prints its identity hash (testing one in a condition is
+ * fine);</li>
+ * <li>#evaluate, #parse and #include, whose content is not known at compile time.</li>
+ * </ul>
+ * {@code $context} chains are resolved against {@link ContextFunctions} by reflection, the way
+ * Velocity resolves them; anything that doesn't resolve counts as non-deterministic.
+ *
+ * {@link #readsBody} and {@link #getContextKeys} tell which inputs a template can read: the body
+ * through {@code $input} or {@code $body}, and the top-level keys of the context JSON, which are
+ * read by {@code $context} properties, by {@code $input.params} and {@code $input.headers}, and by
+ * plain references (the context JSON backs the Velocity context). References inside interpolated
+ * string literals are parsed the way Velocity parses them.
+ *
+ * {@link #mayChangeInput} tells whether the template can change the parsed body or other shared
+ * values, by the same rules {@link TemplateOptimizer} applies before memoizing calls.
+ */
+final class TemplateAnalyzer {
+    private static final Set<String> CLOCK_METHODS = new HashSet<>(Arrays.asList(
+            "getRequestTime", "getRequestTimeEpoch", "getRequestId", "getExtendedRequestId",
+            "getAwsEndpointRequestId"));
+    private static final Set<String> FUNCTION_ROOTS = new HashSet<>(Arrays.asList(
+            "context", "input", "util"));
+    private static final Set<String> DYNAMIC_DIRECTIVES = new HashSet<>(Arrays.asList(
+            "evaluate", "parse", "include"));
+
+    private final RuntimeServices runtime;
+    private final Template template;
+    private boolean deterministic = true;
+    private boolean readsBody;
+    private boolean mayChangeInput;
+    // null once any key can be read
+    private Set<String> contextKeys = new TreeSet<>();
+
+    private TemplateAnalyzer(RuntimeServices runtime, Template template) {
+        this.runtime = runtime;
+        this.template = template;
+    }
+
+    /**
+     * Analyzes {@code root}; {@code runtime} and {@code template} are used to parse interpolated
+     * string literals.
+     */
+    static TemplateAnalyzer analyze(Node root, RuntimeServices runtime, Template template) {
+        TemplateAnalyzer analyzer = new TemplateAnalyzer(runtime, template);
+        analyzer.mayChangeInput = !TemplateOptimizer.isSafe(root);
+        analyzer.visit(root);
+        return analyzer;
+    }
+
+    boolean isDeterministic() {
+        return deterministic;
+    }
+
+    boolean readsBody() {
+        return readsBody;
+    }
+
+    /**
+     * Whether the template can change what {@code $input.path} returns: it calls a collection
+     * mutator, assigns a property with #set, rebinds $input or $util, or uses #macro, #define or
+     * #evaluate.
+     */
+    boolean mayChangeInput() {
+        return mayChangeInput;
+    }
+
+    /**
+     * The top-level context keys the template can read, sorted, or null when it can read any.
+     */
+    Set<String> getContextKeys() {
+        return contextKeys != null ? Collections.unmodifiableSet(contextKeys) : null;
+    }
+
+    private void visit(Node node) {
+        if (node instanceof ASTDirective && DYNAMIC_DIRECTIVES.contains(((ASTDirective) node).getDirectiveName())) {
+            deterministic = false;
+            contextKeys = null;
+        }
+        if (node instanceof ASTReference) {
+            visitReference(node);
+        }
+        if (node instanceof ASTStringLiteral) {
+            visitLiteral(node.getFirstToken().image);
+        }
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            visit(node.jjtGetChild(i));
+        }
+    }
+
+    private void visitLiteral(String image) {
+        if (!image.startsWith("\"") || (image.indexOf('$') < 0 && image.indexOf('#') < 0)) {
+            return;
+        }
+        String content = image.substring(1, image.length() - 1).replace("\"\"", "\"");
+        try {
+            Node parsed = runtime.parse(new StringReader(content), template);
+            if (!TemplateOptimizer.isSafe(parsed)) {
+                mayChangeInput = true;
+            }
+            visit(parsed);
+        } catch (ParseException e) {
+            // initDocument() fails on it too, this is only in case it doesn't
+            deterministic = false;
+            contextKeys = null;
+            mayChangeInput = true;
+        }
+    }
+
+    private void visitReference(Node reference) {
+        String root = TemplateOptimizer.rootName(reference);
+        if ("input".equals(root) || "body".equals(root)) {
+            readsBody = true;
+        }
+        if ("input".equals(root)) {
+            addContextKey("params");
+            addContextKey("headers");
+        } else if ("context".equals(root)) {
+            addContextKeys(reference);
+        } else if (!"util".equals(root)) {
+            addContextKey(root);
+        }
+        if (!isDeterministicReference(root, reference)) {
+            deterministic = false;
+        }
+    }
+
+    private static boolean isDeterministicReference(String root, Node reference) {
+        if (!FUNCTION_ROOTS.contains(root)) {
+            return true;
+        }
+        if (reference.jjtGetNumChildren() == 0) {
+            return isCondition(reference);
+        }
+        if (!"context".equals(root)) {
+            return true;
+        }
+        Class<?> type = ContextFunctions.class;
+        for (int i = 0; i < reference.jjtGetNumChildren(); i++) {
+            if (isValue(type)) {
+                // methods of strings and numbers are pure
+                return true;
+            }
+            Method method = resolve(type, reference.jjtGetChild(i));
+            if (method == null || (type == ContextFunctions.class && CLOCK_METHODS.contains(method.getName()))) {
+                return false;
+            }
+            type = method.getReturnType();
+        }
+        return isValue(type) || isCondition(reference);
+    }
+
+    /**
+     * ContextFunctions getters read the key named like their property; the authorizer reads
+     * principalId and the keys asked of it.
+     */
+    private void addContextKeys(Node reference) {
+        if (reference.jjtGetNumChildren() == 0) {
+            return;
+        }
+        Method method = resolve(ContextFunctions.class, reference.jjtGetChild(0));
+        if (method == null) {
+            return;
+        }
+        if (method.getReturnType() != ContextFunctions.AuthorizerContext.class) {
+            String name = method.getName();
+            int prefix = name.startsWith("get") ? 3 : name.startsWith("is") ? 2 : 0;
+            if (prefix > 0 && name.length() > prefix) {
+                addContextKey(Character.toLowerCase(name.charAt(prefix)) + name.substring(prefix + 1));
+            }
+            return;
+        }
+        if (reference.jjtGetNumChildren() < 2) {
+            return;
+        }
+        Node member = reference.jjtGetChild(1);
+        Method authorizer = resolve(ContextFunctions.AuthorizerContext.class, member);
+        if (authorizer == null || !"get".equals(authorizer.getName())) {
+            addContextKey("principalId");
+        } else if (member instanceof ASTIdentifier) {
+            addContextKey(member.getFirstToken().image);
+        } else {
+            Node argument = member.jjtGetChild(1);
+            if (argument instanceof ASTExpression && argument.jjtGetNumChildren() == 1) {
+                argument = argument.jjtGetChild(0);
+            }
+            String image = argument.getFirstToken().image;
+            if (argument instanceof ASTStringLiteral && (image.startsWith("'") || image.indexOf('$') < 0)) {
+                addContextKey(image.substring(1, image.length() - 1));
+            } else {
+                contextKeys = null;
+            }
+        }
+    }
+
+    private void addContextKey(String key) {
+        if (contextKeys != null) {
+            contextKeys.add(key);
+        }
+    }
+
+    /**
+     * Whether only the truthiness of {@code reference} is used: it is an operand of a logical
+     * operator or the whole condition of an #if or #elseif.
+     */
+    private static boolean isCondition(Node reference) {
+        Node parent = reference.jjtGetParent();
+        if (parent instanceof ASTAndNode || parent instanceof ASTOrNode || parent instanceof ASTNotNode) {
+            return true;
+        }
+        return parent instanceof ASTExpression && (parent.jjtGetParent() instanceof ASTIfStatement
+                || parent.jjtGetParent() instanceof ASTElseIfStatement);
+    }
+
+    /**
+     * The method Velocity calls for a property or method of {@code type}, or null.
+     */
+    private static Method resolve(Class<?> type, Node node) {
+        if (node instanceof ASTIdentifier) {
+            String name = node.getFirstToken().image;
+            String property = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            Method method = find(type, "get" + property, 0);
+            if (method == null) {
+                method = find(type, "is" + property, 0);
+            }
+            return method != null ? method : find(type, "get", 1);
+        }
+        if (node instanceof ASTMethod) {
+            // child 0 is the method name, the arguments follow
+            return find(type, node.getFirstToken().image, node.jjtGetNumChildren() - 1);
+        }
+        return null;
+    }
+
+    private static Method find(Class<?> type, String name, int arity) {
+        for (Method method : type.getMethods()) {
+            if (method.getName().equals(name) && method.getParameterCount() == arity
+                    && !Modifier.isStatic(method.getModifiers()) && method.getDeclaringClass() != Object.class) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isValue(Class<?> type) {
+        return type.isPrimitive() || type == String.class || Number.class.isAssignableFrom(type)
+                || type == Boolean.class || type == Character.class;
+    }
+}
@@ -0,0 +1,62 @@
+package dev.vtlemulator.engine;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of parsed templates keyed by their source text.
+ *
+ * Lookups are lock-free. When the cache is full, an arbitrary entry is evicted to make room, which
+ * keeps memory bounded for processors that see many one-off templates without tracking access order
+ * on the hot path.
+ */
+public class TemplateCache {
+    public static final int DEFAULT_CAPACITY = 512;
+
+    private final int capacity;
+    private final Map<String, CompiledTemplate> templates = new ConcurrentHashMap<>();
+
+    public TemplateCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public TemplateCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    public CompiledTemplate get(String source) {
+        return templates.get(source);
+    }
+
+    /**
+     * Caches a compiled template and returns the cached instance, which is the one already present
+     * if another thread compiled the same source concurrently.
+     */
+    public CompiledTemplate put(String source, CompiledTemplate template) {
+        while (templates.size() >= capacity) {
+            Iterator<String> keys = templates.keySet().iterator();
+            if (!keys.hasNext()) {
+                break;
+            }
+            templates.remove(keys.next());
+        }
+        CompiledTemplate existing = templates.putIfAbsent(source, template);
+        return existing != null ? existing : template;
+    }
+
+    public int size() {
+        return templates.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void clear() {
+        templates.clear();
+    }
+}
@@ -0,0 +1,269 @@
+package dev.vtlemulator.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the {@link TemplateRegistry} of a processor in sync with a directory laid out like the
+ * test cases: {@code <root>/<name>/template.vtl} is registered under {@code <name>}, and an
+ * {@code input.json} / {@code context.json} next to it is recorded as a warm-up sample.
+ *
+ * {@link #start()} compiles every template in parallel before it returns, then watches the
+ * directory with a {@link WatchService}. Changed templates are recompiled on a background thread
+ * and swapped in with {@link TemplateRegistry#register}, so renders never wait for a compile and
+ * always see a whole template, old or new. A template that no longer compiles keeps its previous
+ * version (see {@link #getErrors()}); a deleted one is removed.
+ */
+public class TemplateDirectory implements Closeable {
+    public static final String TEMPLATE_FILE = "template.vtl";
+
+    private final VTLProcessor processor;
+    private final Path root;
+    private final int threads;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final Map<String, String> errors = new ConcurrentHashMap<>();
+    private final AtomicLong reloads = new AtomicLong();
+    private WatchService watcher;
+    private ExecutorService compiler;
+
+    public TemplateDirectory(VTLProcessor processor, Path root) {
+        this(processor, root, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads compile threads used by {@link #start()}
+     */
+    public TemplateDirectory(VTLProcessor processor, Path root, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        this.processor = processor;
+        this.root = root;
+        this.threads = threads;
+    }
+
+    /**
+     * Compiles and registers every template, then starts watching the directory. Templates that
+     * fail to compile are reported by {@link #getErrors()}.
+     *
+     * @return the number of templates registered
+     */
+    public synchronized int start() throws IOException {
+        if (watcher != null) {
+            throw new IllegalStateException("Already started: " + root);
+        }
+        watcher = root.getFileSystem().newWatchService();
+        try {
+            int loaded = load();
+            compiler = Executors.newSingleThreadExecutor(TemplateDirectory::daemon);
+            WatchService service = watcher;
+            ExecutorService executor = compiler;
+            daemon(() -> watchLoop(service, executor)).start();
+            return loaded;
+        } catch (IOException | RuntimeException e) {
+            // leave it closed, so that start() can be retried
+            watcher.close();
+            watcher = null;
+            throw e;
+        }
+    }
+
+    private int load() throws IOException {
+        root.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+        List<Path> dirs = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path dir : entries) {
+                watch(watcher, dir);
+                dirs.add(dir);
+            }
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, TemplateDirectory::daemon);
+        try {
+            List<Future<Boolean>> loads = new ArrayList<>();
+            for (Path dir : dirs) {
+                loads.add(pool.submit(() -> load(dir.getFileName().toString())));
+            }
+            int loaded = 0;
+            for (Future<Boolean> load : loads) {
+                loaded += load.get() ? 1 : 0;
+            }
+            return loaded;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading " + root, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to load " + root, e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Compile errors by template name, for templates whose last change didn't compile.
+     */
+    public Map<String, String> getErrors() {
+        return Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * Number of background reloads (recompiled, registered or removed templates) completed since
+     * {@link #start()}.
+     */
+    public long getReloads() {
+        return reloads.get();
+    }
+
+    /**
+     * Stops watching; {@link #start()} can be called again afterwards.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (watcher == null) {
+            return;
+        }
+        try {
+            watcher.close();
+        } finally {
+            watcher = null;
+            if (compiler != null) {
+                compiler.shutdownNow();
+                compiler = null;
+            }
+        }
+    }
+
+    private static void watch(WatchService watcher, Path dir) throws IOException {
+        dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    private void watchLoop(WatchService watcher, ExecutorService compiler) {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                Path dir = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    try {
+                        handle(watcher, compiler, dir, event);
+                    } catch (IOException e) {
+                        // the directory went away again, its delete event follows
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    private void handle(WatchService watcher, ExecutorService compiler, Path dir, WatchEvent<?> event)
+            throws IOException {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            rescan(watcher, compiler);
+        } else if (dir.equals(root)) {
+            Path child = root.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+                watch(watcher, child);
+            }
+            reload(compiler, child.getFileName().toString());
+        } else if (TEMPLATE_FILE.equals(event.context().toString())) {
+            reload(compiler, dir.getFileName().toString());
+        }
+    }
+
+    private void rescan(WatchService watcher, ExecutorService compiler) throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path dir : entries) {
+                watch(watcher, dir);
+                reload(compiler, dir.getFileName().toString());
+            }
+        }
+    }
+
+    /**
+     * Queues a template for recompiling; a burst of events for it (editors write files in
+     * several steps) is handled by one compile of its latest content.
+     */
+    private void reload(ExecutorService compiler, String name) {
+        if (!pending.add(name)) {
+            return;
+        }
+        try {
+            compiler.execute(() -> {
+                pending.remove(name);
+                try {
+                    load(name);
+                    reloads.incrementAndGet();
+                } catch (IOException e) {
+                    // the file is being replaced, its next event reloads it
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // closed, start() loads every template again
+            pending.remove(name);
+        }
+    }
+
+    /**
+     * Compiles {@code <root>/<name>/template.vtl} and registers it, or removes the template when
+     * the file is gone. Returns whether a new version was registered.
+     */
+    private boolean load(String name) throws IOException {
+        Path dir = root.resolve(name);
+        Path file = dir.resolve(TEMPLATE_FILE);
+        if (!Files.isRegularFile(file)) {
+            errors.remove(name);
+            processor.getTemplateRegistry().remove(name);
+            return false;
+        }
+        String template = Files.readString(file);
+        CompiledTemplate compiled;
+        try {
+            compiled = processor.compile(name, template);
+        } catch (RuntimeException e) {
+            errors.put(name, String.valueOf(e.getMessage()));
+            return false;
+        }
+        errors.remove(name);
+        TemplateRegistry registry = processor.getTemplateRegistry();
+        boolean added = registry.register(compiled) == null;
+        Path input = dir.resolve("input.json");
+        if (added && Files.isRegularFile(input)) {
+            Path context = dir.resolve("context.json");
+            registry.addSample(name, Files.readString(input),
+                    Files.isRegularFile(context) ? Files.readString(context) : "{}");
+        }
+        return true;
+    }
+
+    private static Thread daemon(Runnable task) {
+        Thread thread = new Thread(task, "vtl-template-directory");
+        thread.setDaemon(true);
+        return thread;
+    }
+}
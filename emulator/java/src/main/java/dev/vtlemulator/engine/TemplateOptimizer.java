@@ -0,0 +1,393 @@
+package dev.vtlemulator.engine;
+
+import org.apache.velocity.runtime.parser.Token;
+import org.apache.velocity.runtime.parser.node.ASTBlock;
+import org.apache.velocity.runtime.parser.node.ASTComment;
+import org.apache.velocity.runtime.parser.node.ASTComparisonNode;
+import org.apache.velocity.runtime.parser.node.ASTDirective;
+import org.apache.velocity.runtime.parser.node.ASTExpression;
+import org.apache.velocity.runtime.parser.node.ASTFalse;
+import org.apache.velocity.runtime.parser.node.ASTFloatingPointLiteral;
+import org.apache.velocity.runtime.parser.node.ASTIdentifier;
+import org.apache.velocity.runtime.parser.node.ASTIndex;
+import org.apache.velocity.runtime.parser.node.ASTIntegerLiteral;
+import org.apache.velocity.runtime.parser.node.ASTMathNode;
+import org.apache.velocity.runtime.parser.node.ASTMethod;
+import org.apache.velocity.runtime.parser.node.ASTNegateNode;
+import org.apache.velocity.runtime.parser.node.ASTReference;
+import org.apache.velocity.runtime.parser.node.ASTSetDirective;
+import org.apache.velocity.runtime.parser.node.ASTStringLiteral;
+import org.apache.velocity.runtime.parser.node.ASTText;
+import org.apache.velocity.runtime.parser.node.ASTTextblock;
+import org.apache.velocity.runtime.parser.node.ASTTrue;
+import org.apache.velocity.runtime.parser.node.ASTprocess;
+import org.apache.velocity.runtime.parser.node.Node;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compile-time rewrites of a parsed template.
+ *
+ * {@link #optimize} runs on a freshly parsed template (before {@code initDocument()}, while the
+ * tokens are still there) so that pure calls on {@code $input} and {@code $util} with constant arguments, such as
+ * {@code $input.path('$.a.b')} inside a #foreach, are evaluated once per render: each such call is
+ * wrapped in a {@link MemoizedCallNode} keyed by its call text, which stores the result in the
+ * render's {@link CallMemo}.
+ *
+ * The results are shared objects, so templates that could change what a call returns are left
+ * alone: templates that call a collection mutator (put, add, remove, ...), assign a property with
+ * #set, rebind $input or $util, or use #macro, #define or #evaluate.
+ *
+ * {@link #wrapNumberOperands} runs after it on every template, so that lazy numbers of the request
+ * body are converted before arithmetic and comparisons.
+ *
+ * {@link #mergeStaticText} runs on the initialized template and folds runs of adjacent static
+ * nodes into a single {@link StaticTextNode}.
+ *
+ * {@link #findFragments} runs on the parsed template too, and finds the runs of statements that
+ * only read configuration, which become {@link FragmentNode}s once the template is initialized.
+ */
+final class TemplateOptimizer {
+    private static final Set<String> INPUT_METHODS = new HashSet<>(Arrays.asList(
+            "path", "json", "params", "body", "getBody", "headers", "size"));
+    private static final Set<String> UTIL_METHODS = new HashSet<>(Arrays.asList(
+            "escapeJavaScript", "base64Encode", "base64Decode", "urlEncode", "urlDecode", "parseJson"));
+    private static final Set<String> MUTATORS = new HashSet<>(Arrays.asList(
+            "put", "putAll", "putIfAbsent", "remove", "removeAll", "removeIf", "retainAll", "clear",
+            "add", "addAll", "set", "replace", "replaceAll", "compute", "computeIfAbsent",
+            "computeIfPresent", "merge", "sort", "setValue"));
+    private static final Set<String> UNSAFE_DIRECTIVES = new HashSet<>(Arrays.asList(
+            "macro", "define", "evaluate"));
+    // $context properties that are set per deployment rather than per request
+    private static final Set<String> CONFIG_PROPERTIES = new HashSet<>(Arrays.asList(
+            "stage", "apiId", "accountId", "deploymentId", "domainName", "domainPrefix"));
+
+    private TemplateOptimizer() {
+    }
+
+    /**
+     * Returns the number of call sites that were memoized.
+     */
+    static int optimize(Node root) {
+        if (!isSafe(root)) {
+            return 0;
+        }
+        return memoize(root);
+    }
+
+    /**
+     * Wraps each reference or parenthesized expression that is an operand of arithmetic, a
+     * comparison, a negation or an index in a {@link NumberOperandNode}, before
+     * {@code initDocument()}, and returns the number of wrapped operands.
+     */
+    static int wrapNumberOperands(Node node) {
+        int wrapped = 0;
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            wrapped += wrapNumberOperands(node.jjtGetChild(i));
+        }
+        if (node instanceof ASTMathNode || node instanceof ASTComparisonNode
+                || node instanceof ASTNegateNode || node instanceof ASTIndex) {
+            for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+                Node operand = node.jjtGetChild(i);
+                if (operand instanceof ASTReference || operand instanceof ASTExpression) {
+                    node.jjtAddChild(new NumberOperandNode(operand), i);
+                    wrapped++;
+                }
+            }
+        }
+        return wrapped;
+    }
+
+    /**
+     * Folds each run of adjacent static nodes in the template and its blocks into one write and
+     * returns the number of nodes that no longer write anything. Child lists can't shrink through
+     * the Node API, so the rest of a run is replaced by empty nodes.
+     */
+    static int mergeStaticText(Node root) {
+        int merged = 0;
+        for (int i = 0; i < root.jjtGetNumChildren(); i++) {
+            merged += mergeStaticText(root.jjtGetChild(i));
+        }
+        if (!(root instanceof ASTprocess || root instanceof ASTBlock)) {
+            return merged;
+        }
+        int i = 0;
+        while (i < root.jjtGetNumChildren()) {
+            int end = i;
+            while (end < root.jjtGetNumChildren() && isStatic(root.jjtGetChild(end))) {
+                end++;
+            }
+            if (end - i > 1) {
+                StringWriter text = new StringWriter();
+                for (int j = i; j < end; j++) {
+                    render(root.jjtGetChild(j), text);
+                }
+                root.jjtAddChild(new StaticTextNode(root.jjtGetChild(i), text.toString()), i);
+                for (int j = i + 1; j < end; j++) {
+                    root.jjtAddChild(new StaticTextNode(root.jjtGetChild(j), ""), j);
+                }
+                merged += end - i - 1;
+            }
+            i = Math.max(end, i + 1);
+        }
+        return merged;
+    }
+
+    /**
+     * Finds the maximal runs of adjacent statements in the template and its blocks whose only
+     * references are configuration values ({@code $stageVariables.name} and the deployment
+     * properties of {@code $context}) and that read at least one of them. Runs can hold text,
+     * #if/#else and expressions, but no #set or other directive. Templates that rebind
+     * {@code $context} or use #macro, #define or #evaluate have none.
+     *
+     * Runs before {@code initDocument()}; the fragments are installed after it with
+     * {@link FragmentNode#install()}.
+     */
+    static List<FragmentNode> findFragments(Node root) {
+        List<FragmentNode> fragments = new ArrayList<>();
+        if (!rebindsContext(root)) {
+            findFragments(root, fragments);
+        }
+        return fragments;
+    }
+
+    private static void findFragments(Node node, List<FragmentNode> fragments) {
+        boolean container = node instanceof ASTprocess || node instanceof ASTBlock;
+        int i = 0;
+        while (i < node.jjtGetNumChildren()) {
+            Set<String> inputs = new LinkedHashSet<>();
+            int end = i;
+            while (container && end < node.jjtGetNumChildren()) {
+                Set<String> read = new LinkedHashSet<>();
+                if (!isConfigOnly(node.jjtGetChild(end), read)) {
+                    break;
+                }
+                inputs.addAll(read);
+                end++;
+            }
+            if (end == i) {
+                findFragments(node.jjtGetChild(i), fragments);
+                end++;
+            } else if (!inputs.isEmpty()) {
+                fragments.add(new FragmentNode(node, i, end, inputs));
+            }
+            i = end;
+        }
+    }
+
+    /**
+     * Whether {@code node} only reads configuration; adds what it reads to {@code inputs}.
+     */
+    private static boolean isConfigOnly(Node node, Set<String> inputs) {
+        if (node instanceof ASTDirective || node instanceof ASTSetDirective) {
+            return false;
+        }
+        if (node instanceof ASTStringLiteral && node.getFirstToken().image.startsWith("\"")
+                && mayInterpolate(node.getFirstToken().image)) {
+            return false;
+        }
+        if (node instanceof ASTReference) {
+            String input = configInput(node);
+            if (input == null) {
+                return false;
+            }
+            inputs.add(input);
+        }
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            if (!isConfigOnly(node.jjtGetChild(i), inputs)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The context key ("stage") or stage variable ("stageVariables.name") a reference reads, or
+     * null when it is not a configuration value.
+     */
+    private static String configInput(Node reference) {
+        if (reference.jjtGetNumChildren() == 0) {
+            return null;
+        }
+        String root = rootName(reference);
+        Node first = reference.jjtGetChild(0);
+        String name = first.getFirstToken().image;
+        if ("context".equals(root)) {
+            if (first instanceof ASTMethod && first.jjtGetNumChildren() == 1 && name.startsWith("get")
+                    && name.length() > 3) {
+                name = Character.toLowerCase(name.charAt(3)) + name.substring(4);
+            } else if (!(first instanceof ASTIdentifier)) {
+                return null;
+            }
+            return CONFIG_PROPERTIES.contains(name) ? name : null;
+        }
+        if ("stageVariables".equals(root) && first instanceof ASTIdentifier) {
+            return root + "." + name;
+        }
+        return null;
+    }
+
+    private static boolean rebindsContext(Node node) {
+        if (node instanceof ASTSetDirective || isDirective(node, "foreach")) {
+            Node target = node.jjtGetNumChildren() > 0 ? node.jjtGetChild(0) : null;
+            if (target instanceof ASTReference && "context".equals(rootName(target))) {
+                return true;
+            }
+        }
+        if (node instanceof ASTDirective && UNSAFE_DIRECTIVES.contains(((ASTDirective) node).getDirectiveName())) {
+            return true;
+        }
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            if (rebindsContext(node.jjtGetChild(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void render(Node node, StringWriter writer) {
+        try {
+            // static nodes don't look at the context
+            node.render(null, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean isStatic(Node node) {
+        return node instanceof ASTText || node instanceof ASTComment || node instanceof ASTTextblock;
+    }
+
+    /**
+     * Whether {@code node} can't change the values pure calls return (see the class comment).
+     * Interpolated string literals are not looked into.
+     */
+    static boolean isSafe(Node node) {
+        if (node instanceof ASTMethod && MUTATORS.contains(node.getFirstToken().image)) {
+            return false;
+        }
+        if (node instanceof ASTSetDirective || isDirective(node, "foreach")) {
+            Node target = node.jjtGetNumChildren() > 0 ? node.jjtGetChild(0) : null;
+            if (target instanceof ASTReference
+                    && (target.jjtGetNumChildren() > 0 || isFunctionRoot(rootName(target)))) {
+                return false;
+            }
+        }
+        if (node instanceof ASTDirective && UNSAFE_DIRECTIVES.contains(((ASTDirective) node).getDirectiveName())) {
+            return false;
+        }
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            if (!isSafe(node.jjtGetChild(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int memoize(Node node) {
+        int memoized = 0;
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            memoized += memoize(node.jjtGetChild(i));
+        }
+        if (node instanceof ASTReference && node.jjtGetNumChildren() > 0
+                && node.jjtGetChild(0) instanceof ASTMethod) {
+            String call = memoizableCall(rootName(node), node.jjtGetChild(0));
+            if (call != null) {
+                node.jjtAddChild(new MemoizedCallNode(node.jjtGetChild(0), call), 0);
+                memoized++;
+            }
+        }
+        return memoized;
+    }
+
+    /**
+     * The call as "root.method(arg,...)" with the arguments' source text, or null when the method
+     * is not known to be pure or an argument is not a constant.
+     */
+    private static String memoizableCall(String root, Node method) {
+        String name = method.getFirstToken().image;
+        Set<String> pure = "input".equals(root) ? INPUT_METHODS : "util".equals(root) ? UTIL_METHODS : null;
+        if (pure == null || !pure.contains(name)) {
+            return null;
+        }
+        StringBuilder call = new StringBuilder(root).append('.').append(name).append('(');
+        // child 0 is the method name, the arguments follow (each wrapped in an ASTExpression)
+        for (int i = 1; i < method.jjtGetNumChildren(); i++) {
+            Node argument = method.jjtGetChild(i);
+            if (argument instanceof ASTExpression && argument.jjtGetNumChildren() == 1) {
+                argument = argument.jjtGetChild(0);
+            }
+            if (!isConstant(argument)) {
+                return null;
+            }
+            call.append(i > 1 ? "," : "").append(argument.getFirstToken().image);
+        }
+        return call.append(')').toString();
+    }
+
+    private static boolean isConstant(Node node) {
+        if (node instanceof ASTStringLiteral) {
+            String image = node.getFirstToken().image;
+            return image.startsWith("'") || !mayInterpolate(image);
+        }
+        return node instanceof ASTIntegerLiteral || node instanceof ASTFloatingPointLiteral
+                || node instanceof ASTTrue || node instanceof ASTFalse;
+    }
+
+    /**
+     * Whether a double-quoted string could contain a reference or directive. JSONPath's "$." and
+     * "$[" can't start a reference, so "$.a.b" still counts as a constant.
+     */
+    private static boolean mayInterpolate(String image) {
+        if (image.indexOf('#') >= 0) {
+            return true;
+        }
+        for (int i = image.indexOf('$'); i >= 0; i = image.indexOf('$', i + 1)) {
+            char next = i + 1 < image.length() ? image.charAt(i + 1) : '"';
+            if (Character.isLetter(next) || next == '_' || next == '{' || next == '!' || next == '$') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDirective(Node node, String name) {
+        return node instanceof ASTDirective && name.equals(((ASTDirective) node).getDirectiveName());
+    }
+
+    private static boolean isFunctionRoot(String root) {
+        return "input".equals(root) || "util".equals(root);
+    }
+
+    /**
+     * Reference name without the $, ! and { decorations.
+     */
+    static String rootName(Node reference) {
+        // "$input" is one token, "$!{input" is "$!{" followed by "input"
+        for (Token token = reference.getFirstToken(); token != null; token = token.next) {
+            String image = token.image;
+            int start = 0;
+            while (start < image.length() && (image.charAt(start) == '$' || image.charAt(start) == '!'
+                    || image.charAt(start) == '{')) {
+                start++;
+            }
+            int end = start;
+            while (end < image.length() && (Character.isLetterOrDigit(image.charAt(end))
+                    || image.charAt(end) == '_' || image.charAt(end) == '-')) {
+                end++;
+            }
+            if (end > start || start < image.length() || token == reference.getLastToken()) {
+                return image.substring(start, end);
+            }
+        }
+        return "";
+    }
+}
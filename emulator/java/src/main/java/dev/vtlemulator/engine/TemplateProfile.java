@@ -0,0 +1,158 @@
+package dev.vtlemulator.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Result of {@link VTLProcessor#profile}: where the time of a template went, per directive,
+ * reference and method call, summed over all profiled iterations.
+ *
+ * {@link #toFlatReport()} lists the hotspots as a table, {@link #toFoldedStacks()} writes the call
+ * tree in the folded format understood by flamegraph.pl, speedscope and async-profiler's converter.
+ */
+public class TemplateProfile {
+    private final String templateId;
+    private final RenderResult result;
+    private final int iterations;
+    private final List<Entry> entries;
+    private final TemplateProfiler.StackNode stacks;
+
+    TemplateProfile(String templateId, RenderResult result, TemplateProfiler profiler, int iterations) {
+        this.templateId = templateId;
+        this.result = result;
+        this.iterations = iterations;
+        List<Entry> entries = new ArrayList<>();
+        for (TemplateProfiler.Site site : profiler.getSites()) {
+            entries.add(new Entry(site.line, site.column, site.kind, site.label,
+                    site.invocations, site.totalNanos, site.selfNanos));
+        }
+        entries.sort(Comparator.comparingLong(Entry::getTotalNanos).reversed()
+                .thenComparingInt(Entry::getLine).thenComparingInt(Entry::getColumn));
+        this.entries = Collections.unmodifiableList(entries);
+        this.stacks = profiler.getRoot();
+    }
+
+    public String getTemplateId() {
+        return templateId;
+    }
+
+    /**
+     * Result of the last profiled render.
+     */
+    public RenderResult getResult() {
+        return result;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * All instrumented sites, most expensive (inclusive time) first. Sites that never ran are
+     * included with zero invocations.
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public String toFlatReport() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "Profile of %s (%d iteration%s)%n",
+                templateId, iterations, iterations == 1 ? "" : "s"));
+        report.append(String.format(Locale.ROOT, "%10s %12s %12s %8s  %-10s %s%n",
+                "calls", "total us", "self us", "line", "kind", "source"));
+        for (Entry entry : entries) {
+            report.append(String.format(Locale.ROOT, "%10d %12.1f %12.1f %8s  %-10s %s%n",
+                    entry.getInvocations(), entry.getTotalNanos() / 1000.0, entry.getSelfNanos() / 1000.0,
+                    entry.getLine() + ":" + entry.getColumn(), entry.getKind(), entry.getLabel()));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Folded stacks, one line per call path: {@code templateId;L3 #foreach(...);L5 $input.path('$.a') 1234}
+     * where the number is the self time in nanoseconds.
+     */
+    public String toFoldedStacks() {
+        StringBuilder folded = new StringBuilder();
+        appendFolded(folded, sanitize(stacks.name), stacks);
+        return folded.toString();
+    }
+
+    private static void appendFolded(StringBuilder folded, String path, TemplateProfiler.StackNode node) {
+        if (node.selfNanos > 0) {
+            folded.append(path).append(' ').append(node.selfNanos).append('\n');
+        }
+        for (TemplateProfiler.StackNode child : node.children.values()) {
+            appendFolded(folded, path + ";" + sanitize(child.name), child);
+        }
+    }
+
+    private static String sanitize(String frame) {
+        return frame.replace(';', ',').replace('\n', ' ');
+    }
+
+    /**
+     * Aggregated timings of one instrumented site. Total time includes nested sites, self time
+     * does not.
+     */
+    public static class Entry {
+        private final int line;
+        private final int column;
+        private final String kind;
+        private final String label;
+        private final long invocations;
+        private final long totalNanos;
+        private final long selfNanos;
+
+        Entry(int line, int column, String kind, String label, long invocations, long totalNanos, long selfNanos) {
+            this.line = line;
+            this.column = column;
+            this.kind = kind;
+            this.label = label;
+            this.invocations = invocations;
+            this.totalNanos = totalNanos;
+            this.selfNanos = selfNanos;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public int getColumn() {
+            return column;
+        }
+
+        /**
+         * "#foreach", "#if", "#set", another directive name, "reference" or "method".
+         */
+        public String getKind() {
+            return kind;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public long getInvocations() {
+            return invocations;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getSelfNanos() {
+            return selfNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "L" + line + ":" + column + " " + kind + " " + label + " calls=" + invocations
+                    + " total=" + totalNanos + "ns self=" + selfNanos + "ns";
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package dev.vtlemulator.engine;
+
+import org.apache.velocity.runtime.parser.Token;
+import org.apache.velocity.runtime.parser.node.ASTBlock;
+import org.apache.velocity.runtime.parser.node.ASTComment;
+import org.apache.velocity.runtime.parser.node.ASTDirective;
+import org.apache.velocity.runtime.parser.node.ASTIfStatement;
+import org.apache.velocity.runtime.parser.node.ASTMethod;
+import org.apache.velocity.runtime.parser.node.ASTReference;
+import org.apache.velocity.runtime.parser.node.ASTSetDirective;
+import org.apache.velocity.runtime.parser.node.ASTText;
+import org.apache.velocity.runtime.parser.node.ASTTextblock;
+import org.apache.velocity.runtime.parser.node.ASTprocess;
+import org.apache.velocity.runtime.parser.node.Node;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Instruments a freshly parsed template AST for {@link VTLProcessor#profile}.
+ *
+ * Every statement of the template (directives, #if, #set and references that are direct children
+ * of the template or of a block) and every method call (memoized or not) is wrapped in a {@link ProfilingNode}.
+ * The wrappers report to this profiler, which keeps invocation counts, inclusive and self time per
+ * call site, and a call tree for folded-stack (flame graph) output.
+ *
+ * A profiler belongs to one profiling run and is not thread-safe.
+ */
+class TemplateProfiler {
+    private static final int MAX_LABEL_LENGTH = 80;
+
+    private final List<Site> sites = new ArrayList<>();
+    private final StackNode root;
+    private final Deque<Frame> frames = new ArrayDeque<>();
+
+    TemplateProfiler(String templateId) {
+        this.root = new StackNode(templateId);
+    }
+
+    void instrument(Node node) {
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            Node child = node.jjtGetChild(i);
+            instrument(child);
+            String kind = kind(node, child);
+            if (kind != null) {
+                Token first = child.getFirstToken();
+                Site site = new Site(kind, first != null ? first.beginLine : 0, first != null ? first.beginColumn : 0,
+                        label(node, child));
+                sites.add(site);
+                node.jjtAddChild(new ProfilingNode(child, this, site), i);
+            }
+        }
+    }
+
+    void enter(Site site) {
+        Frame parent = frames.peek();
+        StackNode stack = (parent != null ? parent.stack : root).child(site);
+        frames.push(new Frame(site, stack, System.nanoTime()));
+    }
+
+    void exit() {
+        Frame frame = frames.pop();
+        long elapsed = System.nanoTime() - frame.start;
+        long self = elapsed - frame.childNanos;
+        frame.site.invocations++;
+        frame.site.totalNanos += elapsed;
+        frame.site.selfNanos += self;
+        frame.stack.selfNanos += self;
+        Frame parent = frames.peek();
+        if (parent != null) {
+            parent.childNanos += elapsed;
+        }
+    }
+
+    List<Site> getSites() {
+        return sites;
+    }
+
+    StackNode getRoot() {
+        return root;
+    }
+
+    private static String kind(Node parent, Node child) {
+        if (isMethod(child)) {
+            return "method";
+        }
+        if (!(parent instanceof ASTprocess || parent instanceof ASTBlock)) {
+            return null;
+        }
+        if (child instanceof ASTText || child instanceof ASTComment || child instanceof ASTTextblock) {
+            return null;
+        }
+        if (child instanceof ASTDirective) {
+            return "#" + ((ASTDirective) child).getDirectiveName();
+        } else if (child instanceof ASTIfStatement) {
+            return "#if";
+        } else if (child instanceof ASTSetDirective) {
+            return "#set";
+        } else if (child instanceof ASTReference) {
+            return "reference";
+        }
+        return null;
+    }
+
+    private static boolean isMethod(Node node) {
+        return node instanceof ASTMethod || node instanceof MemoizedCallNode;
+    }
+
+    /**
+     * Source text of the node (for methods: of the reference up to this call), cut at the first
+     * line break.
+     */
+    private static String label(Node parent, Node child) {
+        Token from = isMethod(child) ? parent.getFirstToken() : child.getFirstToken();
+        Token to = child.getLastToken();
+        StringBuilder label = new StringBuilder();
+        for (Token token = from; token != null; token = token.next) {
+            int newline = token.image.indexOf('\n');
+            label.append(newline >= 0 ? token.image.substring(0, newline) : token.image);
+            if (newline >= 0 || token == to || label.length() > MAX_LABEL_LENGTH) {
+                break;
+            }
+        }
+        String text = label.toString().trim();
+        return text.length() > MAX_LABEL_LENGTH ? text.substring(0, MAX_LABEL_LENGTH) + "..." : text;
+    }
+
+    static class Site {
+        final String kind;
+        final int line;
+        final int column;
+        final String label;
+        long invocations;
+        long totalNanos;
+        long selfNanos;
+
+        Site(String kind, int line, int column, String label) {
+            this.kind = kind;
+            this.line = line;
+            this.column = column;
+            this.label = label;
+        }
+    }
+
+    static class StackNode {
+        final String name;
+        final Map<Site, StackNode> children = new LinkedHashMap<>();
+        long selfNanos;
+
+        StackNode(String name) {
+            this.name = name;
+        }
+
+        StackNode child(Site site) {
+            return children.computeIfAbsent(site, s -> new StackNode("L" + s.line + " " + s.label));
+        }
+    }
+
+    private static class Frame {
+        final Site site;
+        final StackNode stack;
+        final long start;
+        long childNanos;
+
+        Frame(Site site, StackNode stack, long start) {
+            this.site = site;
+            this.stack = stack;
+            this.start = start;
+        }
+    }
+}
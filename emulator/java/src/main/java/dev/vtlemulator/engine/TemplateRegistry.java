@@ -0,0 +1,83 @@
+package dev.vtlemulator.engine;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Templates registered under a stable ID with {@link VTLProcessor#registerTemplate}, together with
+ * sample inputs recorded for them (used by {@link VTLProcessor#warmUp}).
+ *
+ * Registering an ID again replaces its template atomically; renders that already picked up the
+ * previous version finish with it. Samples are kept across replacements.
+ */
+public class TemplateRegistry {
+    private final Map<String, CompiledTemplate> templates = new ConcurrentHashMap<>();
+    private final Map<String, List<Sample>> samples = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a compiled template under its ID and returns the template it replaced, if any.
+     */
+    public CompiledTemplate register(CompiledTemplate template) {
+        return templates.put(template.getId(), template);
+    }
+
+    public CompiledTemplate get(String templateId) {
+        return templates.get(templateId);
+    }
+
+    public CompiledTemplate remove(String templateId) {
+        samples.remove(templateId);
+        return templates.remove(templateId);
+    }
+
+    public Collection<CompiledTemplate> getTemplates() {
+        return Collections.unmodifiableCollection(new ArrayList<>(templates.values()));
+    }
+
+    public int size() {
+        return templates.size();
+    }
+
+    /**
+     * Records an input for a template, e.g. a captured production request.
+     */
+    public void addSample(String templateId, String input, String contextJson) {
+        samples.computeIfAbsent(templateId, id -> new CopyOnWriteArrayList<>()).add(new Sample(input, contextJson));
+    }
+
+    public List<Sample> getSamples(String templateId) {
+        List<Sample> recorded = samples.get(templateId);
+        return recorded != null ? Collections.unmodifiableList(recorded) : Collections.emptyList();
+    }
+
+    public void clear() {
+        templates.clear();
+        samples.clear();
+    }
+
+    /**
+     * Request body and context JSON to render a template with.
+     */
+    public static class Sample {
+        private final String input;
+        private final String contextJson;
+
+        public Sample(String input, String contextJson) {
+            this.input = input;
+            this.contextJson = contextJson;
+        }
+
+        public String getInput() {
+            return input;
+        }
+
+        public String getContextJson() {
+            return contextJson;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package dev.vtlemulator.engine;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * A request body or context document as the caller passed it: a String, UTF-8 bytes, or a
+ * memory-mapped UTF-8 file. Bytes are parsed with Jackson's byte parser and decoded to a String
+ * only when {@link #text()} is called, e.g. for {@code $input.body}; a mapped file is streamed to
+ * the parser a buffer at a time and never copied to the heap as a whole unless decoded. Not
+ * thread-safe; each render has its own.
+ */
+final class TextSource {
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+    private final ByteBuffer mapped;
+    private String text;
+    private CharSequence view;
+
+    private TextSource(String text, byte[] bytes, int offset, int length) {
+        this(text, bytes, offset, length, null);
+    }
+
+    private TextSource(String text, byte[] bytes, int offset, int length, ByteBuffer mapped) {
+        this.text = text;
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        this.mapped = mapped;
+    }
+
+    static TextSource of(String text) {
+        return new TextSource(text, null, 0, 0);
+    }
+
+    /**
+     * Maps {@code file} read-only. The mapping is released when it is garbage collected; the file
+     * must not be truncated while it is in use.
+     */
+    static TextSource map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to map: " + file + " (" + size + " bytes)");
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new TextSource(null, null, 0, (int) size, buffer);
+        }
+    }
+
+    /**
+     * Reads the array in place; it must not change until the render is done.
+     */
+    static TextSource of(byte[] bytes) {
+        return bytes == null ? of((String) null) : new TextSource(null, bytes, 0, bytes.length);
+    }
+
+    /**
+     * The remaining bytes of {@code buffer}, without moving its position. Heap buffers are read in
+     * place, direct buffers are copied.
+     */
+    static TextSource of(ByteBuffer buffer) {
+        if (buffer == null) {
+            return of((String) null);
+        }
+        if (buffer.hasArray()) {
+            return new TextSource(null, buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        byte[] copy = new byte[buffer.remaining()];
+        buffer.duplicate().get(copy);
+        return new TextSource(null, copy, 0, copy.length);
+    }
+
+    boolean isNull() {
+        return text == null && bytes == null && mapped == null;
+    }
+
+    /**
+     * Whether the String is available without decoding.
+     */
+    boolean isDecoded() {
+        return (bytes == null && mapped == null) || text != null;
+    }
+
+    /**
+     * The text, decoded from the bytes on first use; null for a null source.
+     */
+    String text() {
+        if (text == null && bytes != null) {
+            text = new String(bytes, offset, length, StandardCharsets.UTF_8);
+        } else if (text == null && mapped != null) {
+            text = view().toString();
+        }
+        return text;
+    }
+
+    /**
+     * The text for {@code $input.body} and {@code $body}: a {@link MappedText} view for a mapped
+     * file, which decodes only when its characters are read, {@link #text()} otherwise.
+     */
+    CharSequence view() {
+        if (mapped == null) {
+            return text();
+        }
+        if (view == null) {
+            view = new MappedText(mapped);
+        }
+        return view;
+    }
+
+    /**
+     * Same as {@code objectMapper.readValue(text, Map.class)}.
+     */
+    Map<String, Object> readMap(ObjectMapper objectMapper) throws IOException {
+        if (mapped != null) {
+            return objectMapper.readValue(new ByteBufferBackedInputStream(mapped.duplicate()), Map.class);
+        }
+        return bytes != null ? objectMapper.readValue(bytes, offset, length, Map.class)
+                : objectMapper.readValue(text, Map.class);
+    }
+
+    JsonParser createParser(ObjectMapper objectMapper) throws IOException {
+        if (bytes != null) {
+            return objectMapper.getFactory().createParser(bytes, offset, length);
+        }
+        if (mapped != null) {
+            return objectMapper.getFactory().createParser(new ByteBufferBackedInputStream(mapped.duplicate()));
+        }
+        if (text == null) {
+            throw new IllegalArgumentException("json is null");
+        }
+        return objectMapper.getFactory().createParser(text);
+    }
+
+    /**
+     * The array the byte parser reads, or null for a String or mapped source. Parser byte offsets are
+     * relative to {@link #bytesOffset()}.
+     */
+    byte[] bytes() {
+        return bytes;
+    }
+
+    int bytesOffset() {
+        return offset;
+    }
+
+    /**
+     * Length in chars, or in bytes for a byte or mapped source.
+     */
+    int length() {
+        return bytes != null || mapped != null ? length : text != null ? text.length() : 0;
+    }
+
+    long utf8Length() {
+        return bytes != null || mapped != null ? length : VTLProcessor.utf8Length(text);
+    }
+}
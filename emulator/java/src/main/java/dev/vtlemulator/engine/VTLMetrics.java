@@ -0,0 +1,43 @@
+package dev.vtlemulator.engine;
+
+/**
+ * Observability hook for {@link VTLProcessor}. Implementations are called on the render hot path
+ * and must be thread-safe and non-blocking.
+ *
+ * All methods have empty defaults so implementations only override what they record.
+ * {@link #NOOP} is the processor default; the processor skips measuring entirely when it is set.
+ */
+public interface VTLMetrics {
+    String TEMPLATE_CACHE = "template";
+    /**
+     * Renders that went through render coalescing; a hit is a render that shared the result of an
+     * identical render already in flight (see {@link VTLProcessor#setRenderCoalescingEnabled}).
+     */
+    String RENDER_COALESCING = "coalescing";
+    /**
+     * Lookups in the {@link ResultCache} of deterministic render outputs.
+     */
+    String RESULT_CACHE = "result";
+
+    VTLMetrics NOOP = new VTLMetrics() {
+    };
+
+    /**
+     * Called once per render, successful or not.
+     *
+     * @param templateId    template ID the render was attributed to
+     * @param durationNanos wall time of the whole render
+     * @param inputBytes    UTF-8 size of the request body
+     * @param outputBytes   UTF-8 size of the rendered output
+     * @param error         true when the render failed
+     */
+    default void recordRender(String templateId, long durationNanos, long inputBytes, long outputBytes, boolean error) {
+    }
+
+    /**
+     * Called on every lookup in one of the processor caches (see {@link #TEMPLATE_CACHE},
+     * {@link #RESULT_CACHE} and {@link #RENDER_COALESCING}).
+     */
+    default void recordCacheAccess(String cache, String templateId, boolean hit) {
+    }
+}
@@ -1,27 +1,63 @@
 package dev.vtlemulator.engine;
 
+import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
 import org.apache.velocity.app.event.ReferenceInsertionEventHandler;
 import org.apache.velocity.context.Context;
-import java.io.StringWriter;
+import org.apache.velocity.exception.ParseErrorException;
+import org.apache.velocity.runtime.RuntimeInstance;
+import org.apache.velocity.runtime.parser.ParseException;
+import org.apache.velocity.runtime.parser.node.SimpleNode;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.List;
+import java.util.Set;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.json.JsonWriteFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class VTLProcessor {
-    private final VelocityEngine velocityEngine;
+    private static final String LOG_TAG = "VTLProcessor";
+
+    private final RuntimeInstance runtime;
     private final ObjectMapper objectMapper;
+    private final PhaseStatistics phaseStatistics = new PhaseStatistics();
+    private final TemplateCache templateCache = new TemplateCache();
+    private final TemplateRegistry templateRegistry = new TemplateRegistry();
+    private volatile boolean phaseTimingEnabled;
+    private volatile VTLMetrics metrics = VTLMetrics.NOOP;
+    private volatile RenderBudget renderBudget = RenderBudget.UNLIMITED;
+    private volatile boolean warmedUp;
+    private volatile boolean templateOptimizationEnabled = true;
+    private volatile boolean compactInputEnabled;
+    private volatile ShapeCache shapeCache;
+    private volatile boolean lazyNumbersEnabled;
+    private volatile RenderCoalescer coalescer;
+    private volatile ResultCache resultCache;
 
     public VTLProcessor() {
-        objectMapper = new ObjectMapper();
+        // UTF-8 output keeps characters outside the BMP unescaped, like String output
+        objectMapper = new ObjectMapper(JsonFactory.builder()
+                .enable(JsonWriteFeature.COMBINE_UNICODE_SURROGATES_IN_UTF8)
+                .build());
         // Set ObjectMapper in handler before Velocity initialization
         // Velocity will create its own instance, so we use a static setter
         JsonSerializationEventHandler.setObjectMapper(objectMapper);
         
-        velocityEngine = new VelocityEngine();
-        velocityEngine.setProperty("eventhandler.referenceinsertion.class", JsonSerializationEventHandler.class.getName());
-        velocityEngine.init();
+        // RuntimeInstance rather than VelocityEngine: we need parse and render as separate steps
+        runtime = new RuntimeInstance();
+        runtime.setProperty("eventhandler.referenceinsertion.class", JsonSerializationEventHandler.class.getName());
+        // Replaces the built-in #foreach; identical unless a RenderBudget is set
+        runtime.setProperty("runtime.custom_directives", BudgetedForeach.class.getName());
+        runtime.setProperty("introspector.uberspect.class", FunctionUberspect.class.getName());
+        runtime.init();
     }
 
     public String process(String template, String contextJson) {
@@ -29,50 +65,667 @@ public class VTLProcessor {
     }
     
     public String process(String template, String inputString, String contextJson) {
+        return render(template, inputString, contextJson).getOutput();
+    }
+
+    /**
+     * Same as {@link #process(String, String, String)}, but returns a {@link RenderResult} that also
+     * carries the error (if any) and, when phase timing is enabled, the per-phase timings.
+     */
+    public RenderResult render(String template, String inputString, String contextJson) {
+        return render(templateId(template), template, inputString, contextJson);
+    }
+
+    /**
+     * Renders a template under an explicit ID. The ID is used to aggregate statistics per template;
+     * {@link #render(String, String, String)} derives one from the template text.
+     */
+    public RenderResult render(String templateId, String template, String inputString, String contextJson) {
+        return render(templateId, template, null, TextSource.of(inputString), TextSource.of(contextJson), false);
+    }
+
+    /**
+     * Renders a template compiled with {@link #compile(String, String)}, bypassing the template cache.
+     */
+    public RenderResult render(CompiledTemplate template, String inputString, String contextJson) {
+        return render(template.getId(), template.getSource(), template, TextSource.of(inputString),
+                TextSource.of(contextJson), false);
+    }
+
+    /**
+     * Same as {@link #process(String, String, String)} for a body and context held as UTF-8: both
+     * are parsed from the bytes (read in place, not copied) and the output is UTF-8. The body is
+     * decoded to a String only if the template reads {@code $input.body} or {@code $body}.
+     */
+    public byte[] process(String template, byte[] input, byte[] contextJson) {
+        return render(templateId(template), template, null, TextSource.of(input), TextSource.of(contextJson), true)
+                .getOutputBytes();
+    }
+
+    /**
+     * Same as {@link #process(String, byte[], byte[])} for the remaining bytes of the buffers; their
+     * positions are not changed.
+     */
+    public ByteBuffer process(String template, ByteBuffer input, ByteBuffer contextJson) {
+        return ByteBuffer.wrap(render(templateId(template), template, input, contextJson).getOutputBytes());
+    }
+
+    /**
+     * Same as {@link #render(String, String, String, String)} for a UTF-8 body and context; the
+     * result's {@link RenderResult#getOutputBytes()} is the output as rendered, without re-encoding.
+     */
+    public RenderResult render(String templateId, String template, ByteBuffer input, ByteBuffer contextJson) {
+        return render(templateId, template, null, TextSource.of(input), TextSource.of(contextJson), true);
+    }
+
+    /**
+     * Same as {@link #process(String, String, String)} for a body stored as a UTF-8 file, e.g. a
+     * large payload: the file is memory-mapped and streamed to the parser, and {@code $body} and
+     * {@code $input.body} are a {@link CharSequence} view of it that decodes only when read.
+     *
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public String process(String template, Path input, String contextJson) throws IOException {
+        return render(templateId(template), template, input, contextJson).getOutput();
+    }
+
+    /**
+     * Same as {@link #render(String, String, String, String)} for a body stored as a UTF-8 file,
+     * see {@link #process(String, Path, String)}.
+     *
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public RenderResult render(String templateId, String template, Path input, String contextJson)
+            throws IOException {
+        return render(templateId, template, null, TextSource.map(input), TextSource.of(contextJson), false);
+    }
+
+    /**
+     * Profiles a template: renders it {@code iterations} times with an instrumented copy of its AST and
+     * reports invocation counts and time per directive, reference and method call, by template line.
+     * The instrumented copy is private to this call, cached templates are not affected.
+     */
+    public TemplateProfile profile(String template, String inputString, String contextJson, int iterations) {
+        String templateId = templateId(template);
+        TemplateProfiler profiler = new TemplateProfiler(templateId);
+        CompiledTemplate compiled;
+        try {
+            compiled = compile(templateId, template, profiler);
+        } catch (Exception e) {
+            return new TemplateProfile(templateId, new RenderResult(templateId, "Error processing template: " + e.getMessage(), e, null), profiler, 0);
+        }
+        RenderResult result = null;
+        for (int i = 0; i < Math.max(1, iterations); i++) {
+            result = render(compiled, inputString, contextJson);
+        }
+        return new TemplateProfile(templateId, result, profiler, Math.max(1, iterations));
+    }
+
+    public TemplateProfile profile(String template, String inputString, String contextJson) {
+        return profile(template, inputString, contextJson, 1);
+    }
+
+    /**
+     * Compiles a template and registers it under a stable ID, replacing any previous version.
+     * Registered templates are replayed by {@link #warmUp(WarmUpOptions)}.
+     *
+     * @throws ParseErrorException when the template is not valid VTL
+     */
+    public CompiledTemplate registerTemplate(String templateId, String template) {
+        CompiledTemplate compiled = compile(templateId, template);
+        templateRegistry.register(compiled);
+        return compiled;
+    }
+
+    public TemplateRegistry getTemplateRegistry() {
+        return templateRegistry;
+    }
+
+    public WarmUpResult warmUp() {
+        return warmUp(WarmUpOptions.DEFAULT);
+    }
+
+    /**
+     * Primes the JIT before taking traffic: renders every registered template, round-robin over its
+     * recorded samples (or an empty body and context when it has none), until render latency is
+     * stable or a limit of the options is reached. Once a warm-up reached stable latency,
+     * {@link #isWarmedUp()} returns true, which is meant for readiness checks.
+     *
+     * Warm-up renders are counted by metrics and phase statistics like any other render, but
+     * always evaluate the template: they bypass the result cache and render coalescing.
+     *
+     * @throws IllegalStateException when no template is registered
+     */
+    public WarmUpResult warmUp(WarmUpOptions options) {
+        List<CompiledTemplate> work = new ArrayList<>();
+        List<TemplateRegistry.Sample> samples = new ArrayList<>();
+        for (CompiledTemplate template : templateRegistry.getTemplates()) {
+            List<TemplateRegistry.Sample> recorded = templateRegistry.getSamples(template.getId());
+            for (TemplateRegistry.Sample sample : recorded.isEmpty() ? List.of(new TemplateRegistry.Sample("{}", "{}")) : recorded) {
+                work.add(template);
+                samples.add(sample);
+            }
+        }
+        if (work.isEmpty()) {
+            throw new IllegalStateException("No templates registered to warm up");
+        }
+
+        int maxIterations = options.getMaxIterations();
+        Duration maxDuration = options.getMaxDuration();
+        if (maxIterations == 0 && maxDuration == null) {
+            maxIterations = WarmUpOptions.DEFAULT.getMaxIterations();
+        }
+        long start = System.nanoTime();
+        long deadline = maxDuration != null ? start + maxDuration.toNanos() : 0L;
+        long[] window = new long[options.getWindowSize()];
+        List<Long> medians = new ArrayList<>();
+        int stableAfter = -1;
+        int errors = 0;
+        int iterations = 0;
+        while ((maxIterations == 0 || iterations < maxIterations) && (deadline == 0L || System.nanoTime() - deadline < 0)) {
+            int next = iterations % work.size();
+            long renderStart = System.nanoTime();
+            CompiledTemplate template = work.get(next);
+            // evaluated every time: result cache hits and coalesced renders would not warm anything
+            RenderResult result = evaluate(template.getId(), template.getSource(), template,
+                    TextSource.of(samples.get(next).getInput()), TextSource.of(samples.get(next).getContextJson()), false);
+            window[iterations % window.length] = System.nanoTime() - renderStart;
+            iterations++;
+            if (result.isError()) {
+                errors++;
+            }
+            if (iterations % window.length == 0) {
+                long[] sorted = window.clone();
+                Arrays.sort(sorted);
+                medians.add(sorted[sorted.length / 2]);
+                if (stableAfter < 0 && isStable(medians, options)) {
+                    stableAfter = iterations;
+                    warmedUp = true;
+                    if (options.isStopWhenStable()) {
+                        break;
+                    }
+                }
+            }
+        }
+        return new WarmUpResult(stableAfter >= 0, iterations, stableAfter,
+                Duration.ofNanos(System.nanoTime() - start), medians, errors);
+    }
+
+    /**
+     * True once a {@link #warmUp} run reached stable latency.
+     */
+    public boolean isWarmedUp() {
+        return warmedUp;
+    }
+
+    private static boolean isStable(List<Long> medians, WarmUpOptions options) {
+        int windows = options.getStableWindows();
+        if (medians.size() < windows) {
+            return false;
+        }
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        for (long median : medians.subList(medians.size() - windows, medians.size())) {
+            min = Math.min(min, median);
+            max = Math.max(max, median);
+        }
+        return max <= min * (1 + options.getTolerance());
+    }
+
+    private RenderResult render(String templateId, String template, CompiledTemplate compiled, TextSource input,
+            TextSource contextJson, boolean utf8Output) {
+        RenderCoalescer coalescer = this.coalescer;
+        ResultCache resultCache = this.resultCache;
+        if ((coalescer != null || resultCache != null) && input.isDecoded() && contextJson.isDecoded()) {
+            CompiledTemplate known = compiled != null ? compiled : templateCache.get(template);
+            if (known != null && known.isDeterministic()) {
+                ResultCache.Key cacheKey = resultCache != null ? resultKey(known, input, contextJson) : null;
+                if (cacheKey != null) {
+                    VTLMetrics metrics = this.metrics;
+                    long start = metrics != VTLMetrics.NOOP ? System.nanoTime() : 0L;
+                    String output = resultCache.get(cacheKey);
+                    metrics.recordCacheAccess(VTLMetrics.RESULT_CACHE, templateId, output != null);
+                    if (output != null) {
+                        RenderResult result = new RenderResult(templateId, output, null, null);
+                        if (metrics != VTLMetrics.NOOP) {
+                            metrics.recordRender(templateId, System.nanoTime() - start, input.utf8Length(),
+                                    result.outputUtf8Length(), false);
+                        }
+                        return result;
+                    }
+                }
+                RenderResult result;
+                if (coalescer != null) {
+                    RenderCoalescer.Key key = new RenderCoalescer.Key(templateId, known.getSource(), input.text(),
+                            contextJson.text());
+                    result = coalescer.render(key,
+                            () -> evaluate(templateId, template, compiled, input, contextJson, utf8Output), metrics);
+                } else {
+                    result = evaluate(templateId, template, compiled, input, contextJson, utf8Output);
+                }
+                if (cacheKey != null && !result.isError()) {
+                    resultCache.put(cacheKey, result.getOutput());
+                }
+                return result;
+            }
+        }
+        return evaluate(templateId, template, compiled, input, contextJson, utf8Output);
+    }
+
+    /**
+     * The inputs {@code template} can read, or null when the render is not cacheable: no body, or
+     * a context that doesn't parse to an object (the render fails).
+     */
+    private ResultCache.Key resultKey(CompiledTemplate template, TextSource input, TextSource contextJson) {
+        if (input.isNull()) {
+            return null;
+        }
+        Map<String, Object> context;
+        String referenced;
+        try {
+            context = contextJson.readMap(objectMapper);
+            if (context == null) {
+                return null;
+            }
+            Set<String> keys = template.getContextKeys();
+            if (keys != null) {
+                Map<String, Object> subset = new LinkedHashMap<>();
+                for (String key : keys) {
+                    if (context.containsKey(key)) {
+                        subset.put(key, context.get(key));
+                    }
+                }
+                context = subset;
+            }
+            referenced = objectMapper.writeValueAsString(context);
+        } catch (IOException e) {
+            return null;
+        }
+        boolean lazyNumbers = compactInputEnabled && lazyNumbersEnabled;
+        int settings = (compactInputEnabled ? 1 : 0) | (lazyNumbers ? 2 : 0);
+        return new ResultCache.Key(template.getSource(), settings, template.readsBody() ? input.text() : null,
+                referenced);
+    }
+
+    private RenderResult evaluate(String templateId, String template, CompiledTemplate compiled, TextSource input,
+            TextSource contextJson, boolean utf8Output) {
+        VTLMetrics metrics = this.metrics;
+        RenderBudget budget = this.renderBudget;
+        long start = metrics != VTLMetrics.NOOP || !budget.isUnlimited() ? System.nanoTime() : 0L;
+        PhaseTimings timings = phaseTimingEnabled ? new PhaseTimings() : null;
+        RenderEvents.TemplateRender renderEvent = new RenderEvents.TemplateRender();
+        renderEvent.begin();
+        boolean templateCacheHit = compiled != null;
+        RenderResult result;
         try {
-            Map<String, Object> context = objectMapper.readValue(contextJson, Map.class);
+            RenderEvents.InputParse parseEvent = new RenderEvents.InputParse();
+            parseEvent.begin();
+            Map<String, Object> context = contextJson.readMap(objectMapper);
+            if (timings != null) timings.lap(PhaseTimings.Phase.CONTEXT_PARSE);
             
             // Parse input as JSON if possible, otherwise treat as empty object
-            Map<String, Object> input;
+            Map<String, Object> inputMap;
+            boolean inputJson = true;
+            boolean lazyNumbers = compactInputEnabled && lazyNumbersEnabled;
             try {
                 // Try to parse as JSON object first
-                input = objectMapper.readValue(inputString, Map.class);
+                inputMap = compactInputEnabled
+                        ? CompactJson.readObject(objectMapper, input, shapeCache, lazyNumbers)
+                        : input.readMap(objectMapper);
             } catch (Exception e) {
                 // If parsing fails, treat as empty object
-                input = objectMapper.readValue("{}", Map.class);
+                inputMap = objectMapper.readValue("{}", Map.class);
+                inputJson = false;
             }
+            if (timings != null) timings.lap(PhaseTimings.Phase.INPUT_PARSE);
+            if (parseEvent.shouldCommit()) {
+                parseEvent.templateId = templateId;
+                parseEvent.inputLength = input.utf8Length();
+                parseEvent.contextLength = contextJson.utf8Length();
+                parseEvent.inputJson = inputJson;
+                parseEvent.commit();
+            }
+
+            if (compiled == null) {
+                compiled = templateCache.get(template);
+                templateCacheHit = compiled != null;
+                if (metrics != VTLMetrics.NOOP) {
+                    metrics.recordCacheAccess(VTLMetrics.TEMPLATE_CACHE, templateId, templateCacheHit);
+                }
+                if (compiled == null) {
+                    compiled = templateCache.put(template, compile(templateId, template));
+                }
+            }
+            if (timings != null) timings.lap(PhaseTimings.Phase.TEMPLATE_PARSE);
             
-            // Store the original input string for body() function
-            context.put("body", inputString);
-            context.put("input", input);
+            // Store the original input string for body() function (bodies passed as bytes are
+            // decoded only when $body is read)
+            if (input.isDecoded()) {
+                context.put("body", input.text());
+            }
+            context.put("input", inputMap);
             
-            VelocityContext velocityContext = new VelocityContext(context);
+            VelocityContext velocityContext = input.isDecoded() ? new VelocityContext(context)
+                    : new LazyBodyContext(context, input);
             
             // Add API Gateway custom functions as objects
-            addApiGatewayFunctions(velocityContext, context, input, inputString);
+            // $input.json('$') streams the body unless the template can change the parsed one
+            addApiGatewayFunctions(velocityContext, context, inputMap, input,
+                    inputJson && !compiled.mayChangeInput(), lazyNumbers);
             
-            StringWriter writer = new StringWriter();
-            velocityEngine.evaluate(velocityContext, writer, "VTLProcessor", template);
+            if (compiled.getMemoizedCalls() > 0) {
+                velocityContext.put(CallMemo.CONTEXT_KEY, new CallMemo());
+            }
+
+            OutputBuffer writer = new OutputBuffer(compiled.getSource().length());
+            if (budget.isUnlimited()) {
+                compiled.getTemplate().merge(velocityContext, writer);
+            } else {
+                RenderGuard guard = new RenderGuard(budget, start);
+                guard.checkDeadline(0, 0);
+                velocityContext.put(RenderGuard.CONTEXT_KEY, guard);
+                compiled.getTemplate().merge(velocityContext, guard.wrap(writer));
+            }
             String output = writer.toString();
+            if (timings != null) timings.lap(PhaseTimings.Phase.EVALUATE);
             // Try to minify if output is valid JSON
-            try {
-                Object json = objectMapper.readValue(output, Object.class);
-                return objectMapper.writeValueAsString(json);
-            } catch (Exception e) {
-                // Not valid JSON, return as is
-                return output;
+            RenderEvents.OutputMinify minifyEvent = new RenderEvents.OutputMinify();
+            minifyEvent.begin();
+            String rendered = output;
+            boolean json = true;
+            byte[] outputBytes = null;
+            String minified = null;
+            if (utf8Output) {
+                outputBytes = JsonMinifier.minifyToUtf8(objectMapper, output, lazyNumbers);
+            } else {
+                minified = JsonMinifier.minify(objectMapper, output, lazyNumbers);
+            }
+            if (outputBytes != null) {
+                output = null;
+            } else if (minified != null) {
+                output = minified;
+            } else {
+                try {
+                    Object parsed = objectMapper.readValue(output, Object.class);
+                    output = objectMapper.writeValueAsString(parsed);
+                } catch (Exception e) {
+                    // Not valid JSON, return as is
+                    json = false;
+                }
             }
+            if (timings != null) timings.lap(PhaseTimings.Phase.MINIFY);
+            if (minifyEvent.shouldCommit()) {
+                minifyEvent.templateId = templateId;
+                minifyEvent.outputLength = utf8Length(rendered);
+                minifyEvent.minifiedLength = output != null ? utf8Length(output) : outputBytes.length;
+                minifyEvent.json = json;
+                minifyEvent.commit();
+            }
+            result = new RenderResult(templateId, output, outputBytes, null, timings);
         } catch (Exception e) {
-            return "Error processing template: " + e.getMessage();
+            result = new RenderResult(templateId, "Error processing template: " + e.getMessage(), e, timings);
+        }
+        if (renderEvent.shouldCommit()) {
+            renderEvent.templateId = templateId;
+            renderEvent.inputLength = input.utf8Length();
+            renderEvent.contextLength = contextJson.utf8Length();
+            renderEvent.outputLength = result.outputUtf8Length();
+            renderEvent.templateCacheHit = templateCacheHit;
+            renderEvent.error = result.isError();
+            renderEvent.commit();
+        }
+        if (timings != null) {
+            phaseStatistics.record(templateId, timings);
         }
+        if (metrics != VTLMetrics.NOOP) {
+            metrics.recordRender(templateId, System.nanoTime() - start, input.utf8Length(),
+                    result.outputUtf8Length(), result.isError());
+        }
+        return result;
+    }
+
+    /**
+     * Enables nanoTime-based phase timers (context parse, input parse, template parse, evaluation
+     * and minify). Disabled by default; when disabled no clock is read and nothing is recorded.
+     */
+    public void setPhaseTimingEnabled(boolean phaseTimingEnabled) {
+        this.phaseTimingEnabled = phaseTimingEnabled;
+    }
+
+    public boolean isPhaseTimingEnabled() {
+        return phaseTimingEnabled;
+    }
+
+    /**
+     * Per-template phase histograms, populated while phase timing is enabled.
+     */
+    public PhaseStatistics getPhaseStatistics() {
+        return phaseStatistics;
+    }
+
+    /**
+     * Installs a metrics sink; null restores the no-op default.
+     */
+    public void setMetrics(VTLMetrics metrics) {
+        this.metrics = metrics != null ? metrics : VTLMetrics.NOOP;
+    }
+
+    public VTLMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the limits applied to every render; null restores {@link RenderBudget#UNLIMITED}.
+     * Renders that exceed the budget fail with a {@link RenderBudgetExceededException}.
+     */
+    public void setRenderBudget(RenderBudget renderBudget) {
+        this.renderBudget = renderBudget != null ? renderBudget : RenderBudget.UNLIMITED;
+    }
+
+    public RenderBudget getRenderBudget() {
+        return renderBudget;
+    }
+
+    /**
+     * Enables the compile-time rewrites of {@link TemplateOptimizer}: pure {@code $input} and
+     * {@code $util} calls with constant arguments (e.g. {@code $input.path('$.a.b')}) are evaluated
+     * once per render, adjacent static text is written in one piece, and runs that only read
+     * configuration are rendered once per configuration version (see {@link FragmentNode}).
+     * Enabled by default; changing it clears the template cache.
+     */
+    public void setTemplateOptimizationEnabled(boolean templateOptimizationEnabled) {
+        this.templateOptimizationEnabled = templateOptimizationEnabled;
+        templateCache.clear();
+    }
+
+    public boolean isTemplateOptimizationEnabled() {
+        return templateOptimizationEnabled;
+    }
+
+    /**
+     * Parses request bodies into the compact, read-only maps and lists of {@link CompactJson}
+     * instead of LinkedHashMap and ArrayList. Disabled by default: templates that modify the parsed
+     * body (put, add, #set of a property) fail when it is enabled.
+     */
+    public void setCompactInputEnabled(boolean compactInputEnabled) {
+        this.compactInputEnabled = compactInputEnabled;
+    }
+
+    public boolean isCompactInputEnabled() {
+        return compactInputEnabled;
+    }
+
+    /**
+     * Shares key arrays between objects of the same shape across compact request bodies (see
+     * {@link ShapeCache}); only used when compact input is enabled. Null, the default, disables it.
+     */
+    public void setShapeCache(ShapeCache shapeCache) {
+        this.shapeCache = shapeCache;
+    }
+
+    public ShapeCache getShapeCache() {
+        return shapeCache;
+    }
+
+    /**
+     * Keeps the numbers of compact request bodies as their source text (see {@link JsonNumber}):
+     * {@code $input.path('$.price')} renders 10.00 rather than 10.0, and numbers are converted only
+     * for arithmetic and comparisons. Output minification then keeps numbers as written too. Only
+     * used when compact input is enabled; disabled by default.
+     */
+    public void setLazyNumbersEnabled(boolean lazyNumbersEnabled) {
+        this.lazyNumbersEnabled = lazyNumbersEnabled;
+    }
+
+    public boolean isLazyNumbersEnabled() {
+        return lazyNumbersEnabled;
+    }
+
+    /**
+     * Lets concurrent renders of the same template, body and context share one evaluation: the
+     * first computes, the others wait for its result. Only applies to deterministic templates
+     * (see {@link CompiledTemplate#isDeterministic()}) that are already compiled, rendered from
+     * String inputs; renders of templates that read {@code $context.requestTime} or a request ID
+     * always run on their own. Disabled by default.
+     */
+    public void setRenderCoalescingEnabled(boolean renderCoalescingEnabled) {
+        this.coalescer = renderCoalescingEnabled ? new RenderCoalescer() : null;
+    }
+
+    public boolean isRenderCoalescingEnabled() {
+        return coalescer != null;
+    }
+
+    /**
+     * Caches the outputs of deterministic templates (see {@link CompiledTemplate#isDeterministic()})
+     * keyed by the inputs they read, so that a render with the same body (if the template reads it)
+     * and the same values of the referenced context keys returns the cached output without
+     * evaluating. Like coalescing, it applies to compiled templates rendered from String inputs;
+     * failed renders are not cached. Null, the default, disables it.
+     *
+     * A hit is recorded by {@link VTLMetrics#recordRender} like any render (its duration is the
+     * lookup), but has no phase timings and is not checked against the {@link RenderBudget}: the
+     * output was produced within the budget in force when it was cached, and changing the budget
+     * doesn't clear the cache. {@link #warmUp} renders bypass the cache.
+     */
+    public void setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Cache of parsed templates used by {@link #process} and {@link #render}.
+     */
+    public TemplateCache getTemplateCache() {
+        return templateCache;
+    }
+
+    static String templateId(String template) {
+        return "template-" + Integer.toHexString(template.hashCode());
+    }
+
+    /**
+     * Parses a template without going through the template cache.
+     *
+     * @throws ParseErrorException when the template is not valid VTL
+     */
+    public CompiledTemplate compile(String templateId, String template) {
+        return compile(templateId, template, null);
+    }
+
+    private CompiledTemplate compile(String templateId, String template, TemplateProfiler profiler) {
+        RenderEvents.TemplateCompile compileEvent = new RenderEvents.TemplateCompile();
+        compileEvent.begin();
+        Template compiled = new Template();
+        compiled.setName(LOG_TAG);
+        compiled.setRuntimeServices(runtime);
+        try {
+            compiled.setData(runtime.parse(new StringReader(template), compiled));
+        } catch (ParseException e) {
+            throw new ParseErrorException(e, null);
+        }
+        TemplateAnalyzer analysis = TemplateAnalyzer.analyze((SimpleNode) compiled.getData(), runtime, compiled);
+        int memoizedCalls = templateOptimizationEnabled ? TemplateOptimizer.optimize((SimpleNode) compiled.getData()) : 0;
+        // fragments would hide the nodes they hold from the profiler
+        List<FragmentNode> fragments = templateOptimizationEnabled && profiler == null
+                ? TemplateOptimizer.findFragments((SimpleNode) compiled.getData()) : List.of();
+        TemplateOptimizer.wrapNumberOperands((SimpleNode) compiled.getData());
+        if (profiler != null) {
+            profiler.instrument((SimpleNode) compiled.getData());
+        }
+        compiled.initDocument();
+        if (templateOptimizationEnabled) {
+            TemplateOptimizer.mergeStaticText((SimpleNode) compiled.getData());
+        }
+        for (FragmentNode fragment : fragments) {
+            fragment.install();
+        }
+        if (compileEvent.shouldCommit()) {
+            compileEvent.templateId = templateId;
+            compileEvent.templateLength = utf8Length(template);
+            compileEvent.commit();
+        }
+        return new CompiledTemplate(templateId, template, compiled, memoizedCalls, analysis);
+    }
+
+    static long utf8Length(String value) {
+        if (value == null) {
+            return 0;
+        }
+        long length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
     }
     
-    private void addApiGatewayFunctions(VelocityContext velocityContext, Map<String, Object> context, Map<String, Object> input, String inputString) {
-        velocityContext.put("input", new InputFunctions(context, input, inputString));
+    private void addApiGatewayFunctions(VelocityContext velocityContext, Map<String, Object> context, Map<String, Object> input, TextSource inputString, boolean inputJson, boolean lazyNumbers) {
+        velocityContext.put("input", new InputFunctions(context, input, inputString, objectMapper, inputJson, lazyNumbers));
         velocityContext.put("util", new UtilFunctions());
         velocityContext.put("context", new ContextFunctions(context));
     }
 
+    /**
+     * Context of a render whose body was passed as bytes or a file: {@code $body} decodes it on
+     * first use.
+     */
+    private static final class LazyBodyContext extends VelocityContext {
+        private static final long serialVersionUID = 1L;
+
+        private final transient TextSource body;
+
+        LazyBodyContext(Map<String, Object> context, TextSource body) {
+            super(context);
+            this.body = body;
+        }
+
+        @Override
+        public Object internalGet(String key) {
+            if ("body".equals(key) && !super.internalContainsKey(key)) {
+                super.internalPut(key, body.view());
+            }
+            return super.internalGet(key);
+        }
+
+        @Override
+        public boolean internalContainsKey(String key) {
+            return "body".equals(key) || super.internalContainsKey(key);
+        }
+    }
+
     /**
      * Event handler that:
      * 1. Converts null values to empty strings (AWS API Gateway behavior)
@@ -0,0 +1,88 @@
+package dev.vtlemulator.engine;
+
+import java.time.Duration;
+
+/**
+ * Settings of {@link VTLProcessor#warmUp(WarmUpOptions)}.
+ *
+ * Renders are grouped into windows of {@link #getWindowSize()} renders. Latency counts as stable
+ * once the median render time of the last {@link #getStableWindows()} windows differs by no more
+ * than {@link #getTolerance()} (0.1 = 10%) between the fastest and the slowest window.
+ */
+public final class WarmUpOptions {
+    public static final WarmUpOptions DEFAULT = new WarmUpOptions(20_000, Duration.ofSeconds(30), 200, 0.10, 3, true);
+
+    private final int maxIterations;
+    private final Duration maxDuration;
+    private final int windowSize;
+    private final double tolerance;
+    private final int stableWindows;
+    private final boolean stopWhenStable;
+
+    private WarmUpOptions(int maxIterations, Duration maxDuration, int windowSize, double tolerance,
+                          int stableWindows, boolean stopWhenStable) {
+        this.maxIterations = maxIterations;
+        this.maxDuration = maxDuration;
+        this.windowSize = windowSize;
+        this.tolerance = tolerance;
+        this.stableWindows = stableWindows;
+        this.stopWhenStable = stopWhenStable;
+    }
+
+    /**
+     * Upper bound on renders; 0 leaves only the duration limit.
+     */
+    public WarmUpOptions withMaxIterations(int maxIterations) {
+        return new WarmUpOptions(Math.max(0, maxIterations), maxDuration, windowSize, tolerance, stableWindows, stopWhenStable);
+    }
+
+    /**
+     * Upper bound on wall-clock time; null leaves only the iteration limit.
+     */
+    public WarmUpOptions withMaxDuration(Duration maxDuration) {
+        return new WarmUpOptions(maxIterations, maxDuration, windowSize, tolerance, stableWindows, stopWhenStable);
+    }
+
+    public WarmUpOptions withWindowSize(int windowSize) {
+        return new WarmUpOptions(maxIterations, maxDuration, Math.max(1, windowSize), tolerance, stableWindows, stopWhenStable);
+    }
+
+    public WarmUpOptions withTolerance(double tolerance) {
+        return new WarmUpOptions(maxIterations, maxDuration, windowSize, Math.max(0, tolerance), stableWindows, stopWhenStable);
+    }
+
+    public WarmUpOptions withStableWindows(int stableWindows) {
+        return new WarmUpOptions(maxIterations, maxDuration, windowSize, tolerance, Math.max(2, stableWindows), stopWhenStable);
+    }
+
+    /**
+     * Whether to stop as soon as latency is stable (the default) or keep going until a limit is hit.
+     */
+    public WarmUpOptions withStopWhenStable(boolean stopWhenStable) {
+        return new WarmUpOptions(maxIterations, maxDuration, windowSize, tolerance, stableWindows, stopWhenStable);
+    }
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    public Duration getMaxDuration() {
+        return maxDuration;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public int getStableWindows() {
+        return stableWindows;
+    }
+
+    public boolean isStopWhenStable() {
+        return stopWhenStable;
+    }
+}
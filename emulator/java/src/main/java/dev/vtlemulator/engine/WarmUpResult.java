@@ -0,0 +1,77 @@
+package dev.vtlemulator.engine;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of {@link VTLProcessor#warmUp(WarmUpOptions)}.
+ */
+public class WarmUpResult {
+    private final boolean stable;
+    private final int iterations;
+    private final int stableAfterIterations;
+    private final Duration elapsed;
+    private final List<Long> windowMedians;
+    private final int errors;
+
+    WarmUpResult(boolean stable, int iterations, int stableAfterIterations, Duration elapsed,
+                 List<Long> windowMedians, int errors) {
+        this.stable = stable;
+        this.iterations = iterations;
+        this.stableAfterIterations = stableAfterIterations;
+        this.elapsed = elapsed;
+        this.windowMedians = Collections.unmodifiableList(windowMedians);
+        this.errors = errors;
+    }
+
+    /**
+     * True when render latency stabilized before a limit was reached.
+     */
+    public boolean isStable() {
+        return stable;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Number of renders after which latency was first stable, or -1.
+     */
+    public int getStableAfterIterations() {
+        return stableAfterIterations;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Median render time in nanoseconds of every completed window, in order.
+     */
+    public List<Long> getWindowMedians() {
+        return windowMedians;
+    }
+
+    /**
+     * Median of the last completed window in nanoseconds, or 0 when no window completed.
+     */
+    public long getFinalMedianNanos() {
+        return windowMedians.isEmpty() ? 0 : windowMedians.get(windowMedians.size() - 1);
+    }
+
+    /**
+     * Renders that failed; samples that fail every time still warm up parsing but usually point
+     * at a bad recording.
+     */
+    public int getErrors() {
+        return errors;
+    }
+
+    @Override
+    public String toString() {
+        return "WarmUpResult{stable=" + stable + ", iterations=" + iterations + ", stableAfter=" + stableAfterIterations
+                + ", elapsed=" + elapsed.toMillis() + "ms, finalMedian=" + getFinalMedianNanos() + "ns, errors=" + errors + "}";
+    }
+}
@@ -0,0 +1,139 @@
+package dev.vtlemulator.cli;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class VTLCliTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ByteArrayOutputStream out;
+    private ByteArrayOutputStream err;
+
+    @Before
+    public void setUp() {
+        out = new ByteArrayOutputStream();
+        err = new ByteArrayOutputStream();
+    }
+
+    @Test
+    public void testRenderFiles() throws Exception {
+        File template = write("template.vtl", "{\"name\": \"$input.path('$.name')\", \"stage\": \"$context.stage\"}");
+        File input = write("input.json", "{\"name\":\"John\"}");
+        File context = write("context.json", "{\"stage\":\"prod\"}");
+
+        int exit = run(null, "--template", template.getPath(), "--input", input.getPath(), "-c", context.getPath());
+
+        assertEquals(VTLCli.OK, exit);
+        assertEquals("{\"name\":\"John\",\"stage\":\"prod\"}", out.toString(StandardCharsets.UTF_8).trim());
+    }
+
+    @Test
+    public void testInputFromStdin() throws Exception {
+        File template = write("template.vtl", "$input.json('$.items')");
+
+        int exit = run("{\"items\":[1, 2]}", "-t", template.getPath(), "-i", "-");
+
+        assertEquals(VTLCli.OK, exit);
+        assertEquals("[1,2]", out.toString(StandardCharsets.UTF_8).trim());
+    }
+
+    @Test
+    public void testRenderError() throws Exception {
+        File template = write("template.vtl", "#foreach($x in");
+
+        assertEquals(VTLCli.RENDER_FAILED, run(null, "-t", template.getPath()));
+        assertTrue(err.toString(StandardCharsets.UTF_8).startsWith("Error processing template:"));
+    }
+
+    @Test
+    public void testUsageErrors() throws Exception {
+        assertEquals(VTLCli.USAGE, run(null));
+        assertEquals(VTLCli.USAGE, run(null, "--unknown", "x"));
+        assertEquals(VTLCli.USAGE, run(null, "-t"));
+        assertEquals(VTLCli.USAGE, run(null, "-t", new File(folder.getRoot(), "missing.vtl").getPath()));
+        assertEquals(VTLCli.OK, run(null, "--help"));
+    }
+
+    @Test
+    public void testCorpus() throws Exception {
+        int exit = run(null, "--corpus", "src/test/resources/vtl-test-cases");
+
+        String output = out.toString(StandardCharsets.UTF_8);
+        assertEquals(err.toString(StandardCharsets.UTF_8), VTLCli.OK, exit);
+        assertTrue(output, output.contains("PASS photo-album"));
+        assertTrue(output, output.matches("(?s).*\\n(\\d+)/\\1 test cases passed\\s*"));
+    }
+
+    @Test
+    public void testCorpusFailure() throws Exception {
+        File dir = folder.newFolder("corpus", "broken");
+        Files.writeString(dir.toPath().resolve("template.vtl"), "not json");
+
+        assertEquals(VTLCli.RENDER_FAILED, run(null, "--corpus", dir.getParent()));
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("FAIL broken"));
+    }
+
+    @Test
+    public void testBatchKeepsOrder() throws Exception {
+        StringBuilder records = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 1; i <= 200; i++) {
+            records.append("{\"id\": ").append(i).append(", \"template\": \"{\\\"n\\\": $input.path('$.n'),")
+                    .append(" \\\"stage\\\": \\\"$context.stage\\\"}\", \"body\": {\"n\": ").append(i)
+                    .append("}, \"context\": \"{\\\"stage\\\": \\\"prod\\\"}\"}\n");
+            expected.append("{\"line\":").append(i).append(",\"id\":").append(i)
+                    .append(",\"output\":\"{\\\"n\\\":").append(i).append(",\\\"stage\\\":\\\"prod\\\"}\"}\n");
+        }
+
+        int exit = run(records.toString(), "--batch", "-", "--threads", "4", "--max-in-flight", "3");
+
+        assertEquals(err.toString(StandardCharsets.UTF_8), VTLCli.OK, exit);
+        assertEquals(expected.toString(), out.toString(StandardCharsets.UTF_8).replace(System.lineSeparator(), "\n"));
+        assertTrue(err.toString(StandardCharsets.UTF_8).startsWith("200 records (0 failed) in "));
+    }
+
+    @Test
+    public void testBatchErrors() throws Exception {
+        File records = write("records.ndjson", String.join("\n",
+                "{\"template\": \"$input.body\", \"body\": \"raw\"}",
+                "",
+                "not json",
+                "{\"body\": \"no template\"}",
+                "{\"template\": \"#foreach($x in\"}"));
+
+        int exit = run(null, "--batch", records.getPath());
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\\R");
+        assertEquals(VTLCli.RENDER_FAILED, exit);
+        assertEquals(4, lines.length);
+        assertEquals("{\"line\":1,\"output\":\"raw\"}", lines[0]);
+        assertTrue(lines[1], lines[1].startsWith("{\"line\":3,\"error\":\"Invalid record: "));
+        assertTrue(lines[2], lines[2].startsWith("{\"line\":4,\"error\":\"Invalid record: "));
+        assertTrue(lines[3], lines[3].startsWith("{\"line\":5,\"error\":\"Error processing template:"));
+        assertTrue(err.toString(StandardCharsets.UTF_8).startsWith("4 records (3 failed) in "));
+        assertEquals(VTLCli.USAGE, run(null, "--batch", "-", "--threads", "0"));
+        assertEquals(VTLCli.USAGE, run(null, "--batch", "-", "--max-in-flight", "x"));
+    }
+
+    private int run(String stdin, String... args) {
+        ByteArrayInputStream in = new ByteArrayInputStream((stdin != null ? stdin : "").getBytes(StandardCharsets.UTF_8));
+        return new VTLCli(in, new PrintStream(out, true), new PrintStream(err, true)).run(args);
+    }
+
+    private File write(String name, String content) throws Exception {
+        File file = folder.newFile(name);
+        Files.writeString(file.toPath(), content);
+        return file;
+    }
+}
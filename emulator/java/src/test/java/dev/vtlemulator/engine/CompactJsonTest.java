@@ -0,0 +1,97 @@
+package dev.vtlemulator.engine;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class CompactJsonTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testSameValuesAsObjectMapper() throws Exception {
+        String json = "{\"s\": \"x\", \"i\": 1, \"l\": 12345678901, \"b\": 12345678901234567890, \"d\": 10.50,"
+                + " \"t\": true, \"f\": false, \"n\": null, \"o\": {\"a\": [1, {\"b\": []}, {}]}, \"e\": []}";
+        Map<String, Object> expected = objectMapper.readValue(json, Map.class);
+        Map<String, Object> compact = CompactJson.readObject(objectMapper, json);
+
+        assertEquals(expected, compact);
+        assertEquals(expected.hashCode(), compact.hashCode());
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(compact.keySet()));
+        assertEquals(Integer.class, compact.get("i").getClass());
+        assertEquals(Long.class, compact.get("l").getClass());
+        assertEquals(BigInteger.class, compact.get("b").getClass());
+        assertEquals(Double.class, compact.get("d").getClass());
+        assertEquals(objectMapper.writeValueAsString(expected), objectMapper.writeValueAsString(compact));
+        assertTrue(compact.containsKey("n"));
+        assertFalse(compact.containsKey("missing"));
+    }
+
+    @Test
+    public void testDuplicateKeysAndLargeObjects() throws Exception {
+        StringBuilder json = new StringBuilder("{\"a\": 1, \"b\": 2, \"a\": 3");
+        for (int i = 0; i < 40; i++) {
+            json.append(", \"k").append(i).append("\": ").append(i);
+        }
+        json.append(", \"k7\": \"last\"}");
+        Map<String, Object> expected = objectMapper.readValue(json.toString(), Map.class);
+        Map<String, Object> compact = CompactJson.readObject(objectMapper, json.toString());
+
+        assertEquals(expected, compact);
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(compact.keySet()));
+        assertEquals(3, compact.get("a"));
+        assertEquals("last", compact.get("k7"));
+        assertEquals(39, compact.get("k39"));
+        assertNull(compact.get("k40"));
+        assertNull(compact.get(7));
+    }
+
+    @Test
+    public void testRootHandling() throws Exception {
+        assertNull(CompactJson.readObject(objectMapper, "null"));
+        assertEquals(1, CompactJson.readObject(objectMapper, "{\"a\": 1} trailing").size());
+        for (String json : new String[] {"", "[1]", "\"text\"", "{\"a\": "}) {
+            try {
+                CompactJson.readObject(objectMapper, json);
+                fail(json);
+            } catch (Exception expected) {
+                // same inputs make readValue(json, Map.class) fail
+            }
+        }
+    }
+
+    @Test
+    public void testReadOnly() throws Exception {
+        Map<String, Object> compact = CompactJson.readObject(objectMapper, "{\"a\": [1]}");
+        try {
+            compact.put("b", 2);
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+        try {
+            ((List<Object>) compact.get("a")).add(2);
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test
+    public void testProcessorRendersCompactInput() {
+        VTLProcessor processor = new VTLProcessor();
+        String template = "#set($root = $input.path('$'))"
+                + "{\"count\": $input.path('$.items').size(), \"first\": \"$root.items[0].name\", \"names\": ["
+                + "#foreach($item in $input.path('$.items'))\"$item.name\"#if($foreach.hasNext),#end#end],"
+                + " \"has\": $root.containsKey('items'), \"body\": $input.json('$.items')}";
+        String input = "{\"items\": [{\"name\": \"a\"}, {\"name\": \"b\"}]}";
+        String expected = processor.process(template, input, "{}");
+
+        processor.setCompactInputEnabled(true);
+        assertEquals(expected, processor.process(template, input, "{}"));
+        assertEquals("{}", processor.process("$input.json('$')", "[1, 2]", "{}"));
+        assertTrue(processor.process("$input.path('$.items').add(1)", input, "{}").startsWith("Error processing template:"));
+    }
+}
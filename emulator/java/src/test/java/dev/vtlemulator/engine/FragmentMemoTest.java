@@ -0,0 +1,114 @@
+package dev.vtlemulator.engine;
+
+import org.apache.velocity.runtime.parser.node.Node;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class FragmentMemoTest {
+    private static final String TEMPLATE = "{\"env\": \"$context.stage.toUpperCase()\","
+            + " \"id\": \"$input.path('$.id')\", \"table\": \"$stageVariables.table\","
+            + "#if($stageVariables.debug == 'true') \"debug\": true,#end"
+            + " \"api\": \"$context.getApiId()\"}";
+
+    private final VTLProcessor processor = new VTLProcessor();
+
+    @Test
+    public void testFindsConfigOnlyRuns() {
+        assertEquals(2, fragments(processor.compile("t", TEMPLATE)).size());
+        assertEquals(1, fragments(processor.compile("t", "#foreach($i in [1, 2])$i $context.stage-$stageVariables.x#end")).size());
+
+        assertEquals(0, fragments(processor.compile("t", "static text")).size());
+        assertEquals(0, fragments(processor.compile("t", "$context.requestId $context.identity.sourceIp")).size());
+        assertEquals(0, fragments(processor.compile("t", "#set($s = $context.stage)$s")).size());
+        assertEquals(0, fragments(processor.compile("t", "$context.stage.concat(\"$input.body\")")).size());
+        assertEquals(0, fragments(processor.compile("t", "#set($context = {})$context.stage")).size());
+
+        processor.setTemplateOptimizationEnabled(false);
+        assertEquals(0, fragments(processor.compile("t", TEMPLATE)).size());
+    }
+
+    @Test
+    public void testRendersOncePerConfigurationVersion() {
+        String prod = "{\"stage\": \"prod\", \"apiId\": \"a1\", \"stageVariables\": {\"table\": \"T\", \"debug\": \"false\"}}";
+        String beta = "{\"stage\": \"beta\", \"apiId\": \"a1\", \"stageVariables\": {\"table\": \"T\", \"debug\": \"true\"}}";
+        CompiledTemplate template = processor.compile("t", TEMPLATE);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("{\"env\":\"PROD\",\"id\":\"" + i + "\",\"table\":\"T\",\"api\":\"a1\"}",
+                    processor.render(template, "{\"id\": \"" + i + "\"}", prod).getOutput());
+            assertEquals("{\"env\":\"BETA\",\"id\":\"" + i + "\",\"table\":\"T\",\"debug\":true,\"api\":\"a1\"}",
+                    processor.render(template, "{\"id\": \"" + i + "\"}", beta).getOutput());
+        }
+        List<FragmentNode> fragments = fragments(template);
+        assertEquals(2, fragments.get(0).versions());
+        assertEquals(2, fragments.get(1).versions());
+
+        // absent values are a version of their own, and render the way they did
+        template = processor.compile("t", "$stageVariables.x/$context.stage");
+        assertEquals("/test", processor.render(template, "{}", "{}").getOutput());
+        assertEquals("y/test", processor.render(template, "{}", "{\"stageVariables\": {\"x\": \"y\"}}").getOutput());
+        assertEquals("/test", processor.render(template, "{}", "{}").getOutput());
+        assertEquals("/test", processor.render(template, "{}", "{\"stageVariables\": {}}").getOutput());
+        assertEquals(2, fragments(template).get(0).versions());
+    }
+
+    @Test
+    public void testUncachedVersions() {
+        CompiledTemplate template = processor.compile("t", "[$stageVariables.x]");
+        for (int i = 0; i < FragmentNode.MAX_VERSIONS + 5; i++) {
+            assertEquals("[" + i + "]", processor.render(template, "{}", "{\"stageVariables\": {\"x\": " + i + "}}").getOutput());
+        }
+        assertEquals("[[1,2]]", processor.render(template, "{}", "{\"stageVariables\": {\"x\": [1, 2]}}").getOutput());
+        assertEquals(FragmentNode.MAX_VERSIONS, fragments(template).get(0).versions());
+    }
+
+    @Test
+    public void testCorpus() throws Exception {
+        VTLProcessor unoptimized = new VTLProcessor();
+        unoptimized.setTemplateOptimizationEnabled(false);
+        try (Stream<Path> cases = Files.list(Paths.get("src/test/resources/vtl-test-cases"))) {
+            for (Path dir : (Iterable<Path>) cases.sorted()::iterator) {
+                if (!Files.exists(dir.resolve("template.vtl"))) {
+                    continue;
+                }
+                String template = Files.readString(dir.resolve("template.vtl"));
+                String input = read(dir.resolve("input.json"));
+                String context = read(dir.resolve("context.json"));
+                CompiledTemplate compiled = processor.compile("t", template);
+                if (!compiled.isDeterministic()) {
+                    continue;
+                }
+                String expected = unoptimized.process(template, input, context);
+                for (int i = 0; i < 3; i++) {
+                    assertEquals(dir.getFileName().toString(), expected, processor.process(template, input, context));
+                }
+            }
+        }
+    }
+
+    private static List<FragmentNode> fragments(CompiledTemplate template) {
+        List<FragmentNode> fragments = new ArrayList<>();
+        collect((Node) template.getTemplate().getData(), fragments);
+        return fragments;
+    }
+
+    private static void collect(Node node, List<FragmentNode> fragments) {
+        if (node instanceof FragmentNode) {
+            fragments.add((FragmentNode) node);
+            return;
+        }
+        for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+            collect(node.jjtGetChild(i), fragments);
+        }
+    }
+
+    private static String read(Path path) throws Exception {
+        return Files.exists(path) ? Files.readString(path).trim() : "{}";
+    }
+}
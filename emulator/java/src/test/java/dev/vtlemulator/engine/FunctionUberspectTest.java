@@ -0,0 +1,92 @@
+package dev.vtlemulator.engine;
+
+import org.apache.velocity.runtime.RuntimeInstance;
+import org.apache.velocity.util.introspection.Info;
+import org.apache.velocity.util.introspection.UberspectImpl;
+import org.apache.velocity.util.introspection.VelMethod;
+import org.apache.velocity.util.introspection.VelPropertyGet;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class FunctionUberspectTest {
+    private static final Info INFO = new Info("test", 1, 1);
+    private static final String INPUT = "{\"items\":[{\"id\":1,\"tags\":[\"a\",\"b\"]},{\"id\":2,\"tags\":[]}],\"user\":{\"name\":\"John\"}}";
+    private static final String CONTEXT = "{\"stage\":\"prod\",\"identity\":{\"sourceIp\":\"10.0.0.1\"}}";
+
+    private FunctionUberspect uberspect;
+    private VTLProcessor processor;
+
+    @Before
+    public void setUp() {
+        RuntimeInstance runtime = new RuntimeInstance();
+        runtime.setProperty("introspector.uberspect.class", FunctionUberspect.class.getName());
+        runtime.init();
+        uberspect = (FunctionUberspect) runtime.getUberspect();
+        processor = new VTLProcessor();
+    }
+
+    @Test
+    public void testFunctionMethodsAreBoundDirectly() throws Exception {
+        InputFunctions input = new InputFunctions(new LinkedHashMap<>(), Map.of("a", "b"), "{\"a\":\"b\"}");
+        VelMethod path = uberspect.getMethod(input, "path", new Object[] {"$.a"}, INFO);
+        assertFalse(path instanceof UberspectImpl.VelMethodImpl);
+        assertEquals("b", path.invoke(input, new Object[] {"$.a"}));
+        assertEquals(Object.class, path.getReturnType());
+    }
+
+    @Test
+    public void testGettersOfNestedContextClasses() throws Exception {
+        Map<String, Object> context = new LinkedHashMap<>();
+        context.put("identity", Map.of("sourceIp", "10.0.0.1"));
+        ContextFunctions functions = new ContextFunctions(context);
+        ContextFunctions.IdentityContext identity = functions.getIdentity();
+
+        VelPropertyGet sourceIp = uberspect.getPropertyGet(identity, "sourceIp", INFO);
+        assertFalse(sourceIp.getClass().getName().startsWith("org.apache.velocity"));
+        assertEquals("10.0.0.1", sourceIp.invoke(identity));
+        assertNull(uberspect.getPropertyGet(identity, "noSuchProperty", INFO));
+    }
+
+    @Test
+    public void testMapAndListFastPaths() throws Exception {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", 7);
+        assertEquals(7, uberspect.getPropertyGet(map, "id", INFO).invoke(map));
+        assertEquals(LinkedHashMap.class, uberspect.getPropertyGet(map, "class", INFO).invoke(map));
+
+        ArrayList<Object> list = new ArrayList<>(Arrays.asList("x", "y"));
+        VelMethod get = uberspect.getMethod(list, "get", new Object[] {1}, INFO);
+        assertFalse(get instanceof UberspectImpl.VelMethodImpl);
+        assertEquals("y", get.invoke(list, new Object[] {1}));
+        try {
+            get.invoke(list, new Object[] {5});
+            fail("Expected InvocationTargetException");
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof IndexOutOfBoundsException);
+        }
+    }
+
+    @Test
+    public void testArgumentsNeedingConversionUseVelocity() {
+        ArrayList<Object> list = new ArrayList<>(Arrays.asList("x", "y"));
+        assertTrue(uberspect.getMethod(list, "get", new Object[] {"1"}, INFO) instanceof UberspectImpl.VelMethodImpl);
+        assertTrue(uberspect.getMethod(list, "subList", new Object[] {0, 1}, INFO) instanceof UberspectImpl.VelMethodImpl);
+    }
+
+    @Test
+    public void testTemplates() {
+        String template = "#foreach($item in $input.path('$.items'))$item.id:$item.tags.size():$item.tags.isEmpty()"
+                + "#if(!$item.tags.isEmpty()):$item.tags[0]:$item.tags.get(1)#end;#end"
+                + "$input.path('$.user').name|$input.path('$.user').get('name')|$context.identity.sourceIp|$context.stage"
+                + "|$util.escapeJavaScript(\"it's\")|$input.path('$.items').get(\"1\").id";
+        assertEquals("1:2:false:a:b;2:0:true;John|John|10.0.0.1|prod|it\\'s|2",
+                processor.process(template, INPUT, CONTEXT));
+    }
+}
@@ -429,4 +429,46 @@ public class InputFunctionsTest {
         String result2 = processor.process(template2, inputJson, contextJson);
         assertEquals("users", result2.trim());
     }
-} 
\ No newline at end of file
+
+    @Test
+    public void testJsonRootStreamsBodyLikeSerializedInput() throws Exception {
+        String body = "{ \"price\" : 10.00, \"big\": 1e3, \"id\": -0,\n \"tags\": [ \"a\\u0041\", null, true ],"
+                + " \"nested\": { \"n\": 12345678901234567890 } }";
+        Map<String, Object> input = objectMapper.readValue(body, Map.class);
+        String expected = objectMapper.writeValueAsString(input);
+
+        InputFunctions streamed = new InputFunctions(new HashMap<>(), input, body, objectMapper, true);
+        assertEquals(expected, streamed.json("$"));
+        assertEquals(expected, new InputFunctions(new HashMap<>(), input, body).json("$"));
+    }
+
+    @Test
+    public void testJsonRootFallsBackForDuplicateKeysAndNonObjectBodies() throws Exception {
+        String duplicate = "{\"a\": 1, \"b\": 2, \"a\": 3}";
+        Map<String, Object> input = objectMapper.readValue(duplicate, Map.class);
+        assertEquals("{\"a\":3,\"b\":2}",
+                new InputFunctions(new HashMap<>(), input, duplicate, objectMapper, true).json("$"));
+
+        assertEquals("{}", processor.process("$input.json('$')", "[1, 2]", "{}"));
+        assertEquals("{}", processor.process("$input.json('$')", "not json", "{}"));
+        assertEquals("{\"a\":{\"b\":[1,2.5]}}", processor.process("$input.json('$')", "{ \"a\": {\"b\": [1, 2.50]} } trailing", "{}"));
+    }
+
+    @Test
+    public void testJsonRootSeesChangesToTheParsedBody() {
+        String put = "#set($root = $input.path('$'))#set($d = $root.put('z', 1))$input.json('$')";
+        assertEquals("{\"a\":1,\"z\":1}", processor.process(put, "{\"a\":1}", "{}"));
+        assertEquals("{\"b\":{\"c\":2,\"d\":3}}",
+                processor.process("#set($d = $input.path('$.b').put('d', 3))$input.json('$')", "{\"b\":{\"c\":2}}", "{}"));
+        assertEquals("{\"b\":2}", processor.process("#set($d = $input.path('$').remove('a'))$input.json('$')", "{\"a\":1,\"b\":2}", "{}"));
+        assertEquals("{\"a\":{\"x\":1}}", processor.process("#set($b = $input.path('$'))#set($b.a = {'x': 1})$input.json('$')", "{\"a\":1}", "{}"));
+        assertEquals("{\"a\":1,\"z\":1}",
+                processor.process("#set($s = \"$input.path('$').put('z', 1)\")$input.json('$')", "{\"a\":1}", "{}"));
+        String setValue = "#foreach($e in $input.path('$').entrySet())#set($d = $e.setValue(9))#end$input.json('$')";
+        assertEquals("{\"a\":9}", processor.process(setValue, "{\"a\":1}", "{}"));
+        processor.setResultCache(new ResultCache());
+        assertEquals("{\"a\":9}", processor.process(setValue, "{\"a\":1}", "{}"));
+        assertEquals("{\"a\":9}", processor.process(setValue, "{\"a\":1}", "{}"));
+        assertFalse(processor.compile("t", "$input.json('$')").mayChangeInput());
+    }
+}
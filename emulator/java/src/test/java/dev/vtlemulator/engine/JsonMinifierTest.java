@@ -0,0 +1,34 @@
+package dev.vtlemulator.engine;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class JsonMinifierTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testMatchesTreeRoundTrip() throws Exception {
+        String[] documents = {
+                "{ \"price\" : 10.00, \"big\": 1e3, \"id\": -0,\n \"tags\": [ \"a\\u0041\", null, true ] }",
+                "[1, 12345678901234567890, 1.5E-7, {\"a\": {}}]",
+                "  \"text\"  ",
+                "11 12",
+                "{\"a\": 1} trailing",
+                "null"
+        };
+        for (String json : documents) {
+            String expected = objectMapper.writeValueAsString(objectMapper.readValue(json, Object.class));
+            assertEquals(json, expected, JsonMinifier.minify(objectMapper, json));
+        }
+    }
+
+    @Test
+    public void testReturnsNullWhenTreeIsNeeded() {
+        assertNull(JsonMinifier.minify(objectMapper, "{\"a\": 1, \"a\": 2}"));
+        assertNull(JsonMinifier.minify(objectMapper, "<xml/>"));
+        assertNull(JsonMinifier.minify(objectMapper, "{\"a\": "));
+        assertNull(JsonMinifier.minify(objectMapper, "   "));
+        assertNull(JsonMinifier.minify(objectMapper, null));
+    }
+}
@@ -0,0 +1,112 @@
+package dev.vtlemulator.engine;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+
+public class JsonNumberTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testKeepsTextAndConvertsLikeObjectMapper() throws Exception {
+        String json = "{\"i\": -7, \"l\": 12345678901, \"b\": 12345678901234567890, \"d\": 10.00, \"e\": 1E2,"
+                + " \"z\": 0, \"s\": \"10.00\", \"a\": [1.50, 2]}";
+        Map<String, Object> expected = objectMapper.readValue(json, Map.class);
+        Map<String, Object> lazy = CompactJson.readObject(objectMapper, json, null, true);
+
+        for (String key : new String[] {"i", "l", "b", "d", "e", "z"}) {
+            JsonNumber number = (JsonNumber) lazy.get(key);
+            assertEquals(key, expected.get(key), number.value());
+            assertEquals(key, expected.get(key).getClass(), number.value().getClass());
+        }
+        assertEquals("10.00", lazy.get("d").toString());
+        assertEquals("1E2", lazy.get("e").toString());
+        assertEquals(10.0, ((Number) lazy.get("d")).doubleValue(), 0.0);
+        assertEquals("10.00", lazy.get("s"));
+        assertEquals("[1.50,2]", objectMapper.writeValueAsString(lazy.get("a")));
+        assertEquals(lazy.get("a"), CompactJson.readObject(objectMapper, "{\"a\": [1.5, 2]}", null, true).get("a"));
+    }
+
+    @Test
+    public void testSlicesOfLargeBodies() throws Exception {
+        StringBuilder json = new StringBuilder("{\"items\": [");
+        for (int i = 0; i < 20000; i++) {
+            json.append(i > 0 ? ", " : "").append(i).append(".5");
+        }
+        json.append("]}");
+        List<Object> items = (List<Object>) CompactJson.readObject(objectMapper, json.toString(), null, true).get("items");
+
+        assertEquals(20000, items.size());
+        for (int i = 0; i < items.size(); i += 997) {
+            assertEquals(i + ".5", items.get(i).toString());
+        }
+        assertEquals("19999.5", items.get(19999).toString());
+    }
+
+    @Test
+    public void testTemplatesComputeWithValues() {
+        VTLProcessor processor = new VTLProcessor();
+        processor.setCompactInputEnabled(true);
+        String input = "{\"price\": 10.00, \"qty\": 3, \"zero\": 0, \"big\": 12345678901, \"list\": [\"a\", \"b\", \"c\"], \"i\": 1}";
+        String template = "{\"total\": $mathTotal, \"sum\": #set($s = $input.path('$.qty') + 1)$s,"
+                + " \"neg\": #set($n = -$input.path('$.qty'))$n,"
+                + " \"gt\": #if($input.path('$.price') > 9.99)true#{else}false#end,"
+                + " \"eq\": #if($input.path('$.qty') == 3)true#{else}false#end,"
+                + " \"zero\": #if($input.path('$.zero'))true#{else}false#end,"
+                + " \"big\": #set($b = $input.path('$.big') * 2)$b,"
+                + " \"item\": \"$input.path('$.list')[$input.path('$.i')]\","
+                + " \"range\": [#foreach($k in [1..$input.path('$.qty')])$k#if($foreach.hasNext),#end#end],"
+                + " \"price\": $input.path('$.price'), \"json\": $input.json('$.price'), \"body\": $input.json('$')}";
+        template = "#set($mathTotal = $input.path('$.price') * $input.path('$.qty'))" + template;
+        String expected = processor.process(template, input, "{}");
+
+        processor.setLazyNumbersEnabled(true);
+        String lazy = processor.process(template, input, "{}");
+
+        assertEquals(expected.replace("\"price\":10.0,\"json\":10.0", "\"price\":10.00,\"json\":10.00")
+                .replace("\"body\":{\"price\":10.0", "\"body\":{\"price\":10.00"), lazy);
+        assertTrue(lazy, lazy.startsWith("{\"total\":30.0,\"sum\":4,\"neg\":-3,\"gt\":true,\"eq\":true,\"zero\":false,"
+                + "\"big\":24691357802,\"item\":\"b\",\"range\":[1,2,3],"));
+    }
+
+    @Test
+    public void testMethodArgumentsAndNumberMethods() throws Exception {
+        VTLProcessor processor = new VTLProcessor();
+        processor.setCompactInputEnabled(true);
+        String input = "{\"n\": 2, \"d\": 2.50, \"arr\": [1, 2, 3], \"m\": {\"k\": 2}}";
+        String[] templates = {
+            "#set($l = ['a', 'b', 'c'])$l.get($input.path('$.n'))",
+            "#set($s = 'abcdef')$s.substring($input.path('$.n'))",
+            "#set($map = {2: 'two'})$map.get($input.path('$.n'))",
+            "#set($d = {})#set($x = $d.put($input.path('$.n'), 'v'))$d.get(2)",
+            "$input.path('$.n').compareTo(3)",
+            "$input.path('$.n').equals(2)",
+            "#set($a = [1, 2, 3])$a.contains($input.path('$.n'))",
+            "$input.path('$.arr').contains(2) $input.path('$.arr').indexOf(3) $input.path('$.arr').contains($input.path('$.n'))",
+            "$input.path('$.m').containsValue(2) $input.path('$.m').containsValue($input.path('$.n'))",
+            "#foreach($v in [$input.path('$.n'), $input.path('$.d')])$v.compareTo($v) #end",
+            "$input.path('$.d').intValue() $input.path('$.d').toString()",
+        };
+        // prefixed, so outputs that start like JSON are not minified
+        String[] expected = {"c", "cdef", "two", "v", "-1", "true", "true", "true 2 true", "true true", "0 0 ", "2 2.50"};
+        processor.setLazyNumbersEnabled(true);
+        for (int i = 0; i < templates.length; i++) {
+            for (int render = 0; render < 2; render++) {
+                assertEquals(templates[i], "r=" + expected[i], processor.process("r=" + templates[i], input, "{}"));
+            }
+        }
+        processor.setLazyNumbersEnabled(false);
+        for (int i = 0; i < templates.length - 1; i++) {
+            assertEquals(templates[i], "r=" + expected[i], processor.process("r=" + templates[i], input, "{}"));
+        }
+
+        JsonNumber two = (JsonNumber) CompactJson.readObject(new ObjectMapper(), input, null, true).get("n");
+        assertEquals(two, 2);
+        assertEquals(two.hashCode(), Integer.valueOf(2).hashCode());
+        assertNotEquals(two, 2L);
+        assertNotEquals(two, "2");
+    }
+}
@@ -0,0 +1,108 @@
+package dev.vtlemulator.engine;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.runtime.RuntimeInstance;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+public class MappedBodyTest {
+    private static final String TEMPLATE = "{\"name\": \"$input.path('$.name')\", \"price\": $input.path('$.price'),"
+            + " \"all\": $input.json('$'), \"body\": \"$util.escapeJavaScript($input.body)\","
+            + " \"size\": $input.body.length(), \"stage\": \"$context.stage\"}";
+    private static final String INPUT = "{\"name\": \"Zoë ☕ 😀\", \"price\": 10.50, \"tags\": [1, 2.0]}";
+    private static final String CONTEXT = "{\"stage\": \"prod\"}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testFileRendersLikeString() throws IOException {
+        Path file = write(INPUT);
+        VTLProcessor processor = new VTLProcessor();
+
+        assertEquals(processor.process(TEMPLATE, INPUT, CONTEXT), processor.process(TEMPLATE, file, CONTEXT));
+        processor.setCompactInputEnabled(true);
+        assertEquals(processor.process(TEMPLATE, INPUT, CONTEXT), processor.process(TEMPLATE, file, CONTEXT));
+        processor.setLazyNumbersEnabled(true);
+        assertEquals(processor.process(TEMPLATE, INPUT, CONTEXT), processor.process(TEMPLATE, file, CONTEXT));
+    }
+
+    @Test
+    public void testBodyAndErrors() throws IOException {
+        VTLProcessor processor = new VTLProcessor();
+        String template = "b=$body|$input.body|$util.parseJson($input.body).a|#set($body = 'x')$body";
+
+        assertEquals("b={\"a\":1}|{\"a\":1}|1|x", processor.process(template, write("{\"a\":1}"), "{}"));
+        assertEquals("b=not json|not json||x", processor.process(template, write("not json"), "{}"));
+        assertEquals(processor.process(template, "", "{}"), processor.process(template, write(""), "{}"));
+        assertNotNull(processor.render("id", template, write("{}"), "not json").getError());
+        try {
+            processor.process(template, folder.getRoot().toPath().resolve("missing.json"), "{}");
+            fail("expected NoSuchFileException");
+        } catch (NoSuchFileException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testInputBodyIsAString() throws IOException {
+        Map<String, Object> empty = new HashMap<>();
+        InputFunctions input = new InputFunctions(empty, empty, TextSource.map(write("{\"a\":1}")), new ObjectMapper(), false, false);
+        String body = input.body();
+        assertEquals("{\"a\":1}", body);
+        assertEquals(body, input.getBody());
+    }
+
+    @Test
+    public void testInputBodyLengthDoesNotDecode() throws IOException {
+        Map<String, Object> empty = new HashMap<>();
+        TextSource body = TextSource.map(write("{\"a\": [1, 2, 3]}"));
+        VelocityContext context = new VelocityContext();
+        context.put("input", new InputFunctions(empty, empty, body, new ObjectMapper(), false, false));
+        RuntimeInstance runtime = new RuntimeInstance();
+        runtime.setProperty("introspector.uberspect.class", FunctionUberspect.class.getName());
+        runtime.init();
+
+        StringWriter out = new StringWriter();
+        runtime.evaluate(context, out, "test", "$input.body.length()|$input.getBody().isEmpty()");
+        assertEquals("16|false", out.toString());
+        assertFalse(body.isDecoded());
+
+        out = new StringWriter();
+        runtime.evaluate(context, out, "test", "$input.body");
+        assertEquals("{\"a\": [1, 2, 3]}", out.toString());
+    }
+
+    @Test
+    public void testViewDecodesOnlyWhenRead() {
+        MappedText ascii = new MappedText(ByteBuffer.wrap("{\"a\": 1}".getBytes(StandardCharsets.UTF_8)));
+        assertFalse(ascii.isEmpty());
+        assertEquals(8, ascii.length());
+        assertEquals('a', ascii.charAt(2));
+        assertEquals("\"a\"", ascii.subSequence(1, 4).toString());
+
+        MappedText text = new MappedText(ByteBuffer.wrap(INPUT.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(INPUT.length(), text.length());
+        assertEquals(INPUT, text.toString());
+        assertTrue(new MappedText(ByteBuffer.allocate(0)).isEmpty());
+    }
+
+    private Path write(String text) throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
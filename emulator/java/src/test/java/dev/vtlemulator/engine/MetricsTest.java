@@ -0,0 +1,100 @@
+package dev.vtlemulator.engine;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class MetricsTest {
+    private static final String TEMPLATE = "{\"name\": \"$input.path('$.name')\"}";
+
+    private VTLProcessor processor;
+    private InMemoryMetrics metrics;
+
+    @Before
+    public void setUp() {
+        processor = new VTLProcessor();
+        metrics = new InMemoryMetrics();
+        processor.setMetrics(metrics);
+    }
+
+    @Test
+    public void testNoopByDefault() {
+        assertSame(VTLMetrics.NOOP, new VTLProcessor().getMetrics());
+        processor.setMetrics(null);
+        assertSame(VTLMetrics.NOOP, processor.getMetrics());
+    }
+
+    @Test
+    public void testRendersAndBytesPerTemplate() {
+        processor.render("users", TEMPLATE, "{\"name\":\"Jöhn\"}", "{}");
+        processor.render("users", TEMPLATE, "{\"name\":\"Jane\"}", "{}");
+
+        InMemoryMetrics.TemplateMetrics users = metrics.snapshot().getTemplate("users");
+        assertEquals(2, users.getRenders());
+        assertEquals(0, users.getErrors());
+        // "Jöhn" takes 5 bytes in UTF-8
+        assertEquals(16 + 15, users.getInputBytes());
+        assertEquals(16 + 15, users.getOutputBytes());
+        assertEquals(2, users.getLatency().getCount());
+        assertTrue(users.getLatency().getMax() > 0);
+    }
+
+    @Test
+    public void testErrorsAreCounted() {
+        processor.render("broken", TEMPLATE, "{}", "not json");
+        InMemoryMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(1, snapshot.getTemplate("broken").getErrors());
+        assertEquals(1, snapshot.getTotalErrors());
+        assertEquals(1, snapshot.getTotalRenders());
+    }
+
+    @Test
+    public void testTemplateCacheHitRate() {
+        for (int i = 0; i < 4; i++) {
+            processor.render("users", TEMPLATE, "{}", "{}");
+        }
+        InMemoryMetrics.CacheStats cache = metrics.snapshot().getTemplate("users").getCache(VTLMetrics.TEMPLATE_CACHE);
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.75, cache.getHitRate(), 0.0001);
+        assertEquals(1, processor.getTemplateCache().size());
+    }
+
+    @Test
+    public void testSnapshotIsImmutableCopy() {
+        processor.render("users", TEMPLATE, "{}", "{}");
+        InMemoryMetrics.Snapshot before = metrics.snapshot();
+        processor.render("users", TEMPLATE, "{}", "{}");
+        assertEquals(1, before.getTemplate("users").getRenders());
+        assertEquals(2, metrics.snapshot().getTemplate("users").getRenders());
+
+        metrics.reset();
+        assertTrue(metrics.snapshot().getTemplates().isEmpty());
+    }
+
+    @Test
+    public void testCustomMetricsImplementation() {
+        List<String> calls = new ArrayList<>();
+        processor.setMetrics(new VTLMetrics() {
+            @Override
+            public void recordRender(String templateId, long durationNanos, long inputBytes, long outputBytes, boolean error) {
+                calls.add("render:" + templateId + ":" + error);
+            }
+        });
+        processor.render("custom", TEMPLATE, "{}", "{}");
+        assertEquals(List.of("render:custom:false"), calls);
+    }
+
+    @Test
+    public void testTemplateCacheIsBounded() {
+        TemplateCache cache = new TemplateCache(2);
+        cache.put("a", new CompiledTemplate("a", "a", null));
+        cache.put("b", new CompiledTemplate("b", "b", null));
+        cache.put("c", new CompiledTemplate("c", "c", null));
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("c"));
+    }
+}
@@ -0,0 +1,91 @@
+package dev.vtlemulator.engine;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Map;
+
+public class PhaseTimingTest {
+    private static final String TEMPLATE = "{\"name\": \"$input.path('$.name')\", \"stage\": \"$context.stage\"}";
+    private static final String INPUT = "{\"name\":\"John\"}";
+    private static final String CONTEXT = "{\"stage\":\"prod\"}";
+
+    private VTLProcessor processor;
+
+    @Before
+    public void setUp() {
+        processor = new VTLProcessor();
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        RenderResult result = processor.render(TEMPLATE, INPUT, CONTEXT);
+        assertFalse(processor.isPhaseTimingEnabled());
+        assertNull(result.getTimings());
+        assertTrue(processor.getPhaseStatistics().snapshot().isEmpty());
+        assertEquals("{\"name\":\"John\",\"stage\":\"prod\"}", result.getOutput());
+    }
+
+    @Test
+    public void testTimingsReturnedWhenEnabled() {
+        processor.setPhaseTimingEnabled(true);
+        RenderResult result = processor.render(TEMPLATE, INPUT, CONTEXT);
+
+        PhaseTimings timings = result.getTimings();
+        assertNotNull(timings);
+        assertTrue(timings.getNanos(PhaseTimings.Phase.EVALUATE) > 0);
+        long sum = 0;
+        for (PhaseTimings.Phase phase : PhaseTimings.Phase.values()) {
+            assertTrue(timings.getNanos(phase) >= 0);
+            sum += timings.getNanos(phase);
+        }
+        assertEquals(sum, timings.getTotalNanos());
+    }
+
+    @Test
+    public void testAggregatedPerTemplate() {
+        processor.setPhaseTimingEnabled(true);
+        processor.render("orders", TEMPLATE, INPUT, CONTEXT);
+        processor.render("orders", TEMPLATE, INPUT, CONTEXT);
+        processor.render("users", "{\"ok\": true}", "{}", "{}");
+
+        Map<String, Map<PhaseTimings.Phase, LatencyHistogram.Snapshot>> snapshot = processor.getPhaseStatistics().snapshot();
+        assertEquals(2, snapshot.size());
+        assertEquals(2, snapshot.get("orders").get(PhaseTimings.Phase.EVALUATE).getCount());
+        assertEquals(1, snapshot.get("users").get(PhaseTimings.Phase.MINIFY).getCount());
+        assertEquals(2, processor.getPhaseStatistics().totals().get("orders").getCount());
+    }
+
+    @Test
+    public void testDerivedTemplateIdIsStable() {
+        RenderResult first = processor.render(TEMPLATE, INPUT, CONTEXT);
+        RenderResult second = processor.render(TEMPLATE, "{}", "{}");
+        assertEquals(first.getTemplateId(), second.getTemplateId());
+        assertNotEquals(first.getTemplateId(), processor.render("$foo", "{}", "{}").getTemplateId());
+    }
+
+    @Test
+    public void testErrorsAreReportedAndTimed() {
+        processor.setPhaseTimingEnabled(true);
+        RenderResult result = processor.render("broken", TEMPLATE, INPUT, "not json");
+        assertTrue(result.isError());
+        assertTrue(result.getOutput().startsWith("Error processing template: "));
+        assertNotNull(result.getTimings());
+        assertEquals(1, processor.getPhaseStatistics().totals().get("broken").getCount());
+    }
+
+    @Test
+    public void testStatisticsAreBounded() {
+        PhaseStatistics statistics = new PhaseStatistics(2);
+        PhaseTimings timings = new PhaseTimings();
+        timings.lap(PhaseTimings.Phase.EVALUATE);
+        statistics.record("a", timings);
+        statistics.record("b", timings);
+        statistics.record("c", timings);
+        statistics.record("d", timings);
+
+        assertEquals(3, statistics.snapshot().size());
+        assertEquals(2, statistics.totals().get(PhaseStatistics.OTHER_TEMPLATES).getCount());
+    }
+}
@@ -0,0 +1,107 @@
+package dev.vtlemulator.engine;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.Duration;
+
+public class RenderBudgetTest {
+    private static final String LOOP = "[#foreach($item in $input.path('$.items'))$item#if($foreach.hasNext),#end#end]";
+    private static final String CONTEXT = "{}";
+
+    private VTLProcessor processor;
+
+    @Before
+    public void setUp() {
+        processor = new VTLProcessor();
+    }
+
+    @Test
+    public void testUnlimitedByDefault() {
+        assertTrue(processor.getRenderBudget().isUnlimited());
+        RenderResult result = processor.render(LOOP, items(2000), CONTEXT);
+        assertFalse(result.isError());
+    }
+
+    @Test
+    public void testForeachWithinLimit() {
+        processor.setRenderBudget(RenderBudget.aws());
+        RenderResult result = processor.render(LOOP, items(1000), CONTEXT);
+        assertFalse(result.getOutput(), result.isError());
+        assertEquals(processor.process(LOOP, items(1000), CONTEXT), result.getOutput());
+    }
+
+    @Test
+    public void testForeachLimitExceeded() {
+        processor.setRenderBudget(RenderBudget.aws());
+        RenderResult result = processor.render(LOOP, items(1001), CONTEXT);
+
+        RenderBudgetExceededException error = (RenderBudgetExceededException) result.getError();
+        assertEquals(RenderBudgetExceededException.Kind.FOREACH_ITERATIONS, error.getKind());
+        assertEquals(RenderBudget.AWS_FOREACH_LIMIT, error.getLimit());
+        assertEquals(1, error.getLine());
+        assertEquals(2, error.getColumn());
+        assertTrue(result.getOutput().startsWith("Error processing template: Render budget exceeded"));
+    }
+
+    @Test
+    public void testNestedLoopsCountedSeparately() {
+        processor.setRenderBudget(RenderBudget.UNLIMITED.withMaxForeachIterations(3));
+        String template = "#foreach($a in [1..3])#foreach($b in [1..3])x$a$b #end#end";
+        RenderResult result = processor.render(template, "{}", CONTEXT);
+        assertFalse(result.getOutput(), result.isError());
+        assertEquals("x11 x12 x13 x21 x22 x23 x31 x32 x33 ", result.getOutput());
+
+        result = processor.render("#foreach($a in [1..2])#foreach($b in [1..4])$b#end#end", "{}", CONTEXT);
+        assertEquals(RenderBudgetExceededException.Kind.FOREACH_ITERATIONS,
+                ((RenderBudgetExceededException) result.getError()).getKind());
+    }
+
+    @Test
+    public void testOutputSizeExceeded() {
+        processor.setRenderBudget(RenderBudget.UNLIMITED.withMaxOutputChars(100));
+        assertFalse(processor.render(LOOP, items(10), CONTEXT).isError());
+
+        RenderResult result = processor.render(LOOP, items(100), CONTEXT);
+        RenderBudgetExceededException error = (RenderBudgetExceededException) result.getError();
+        assertEquals(RenderBudgetExceededException.Kind.OUTPUT_SIZE, error.getKind());
+        assertEquals(100, error.getLimit());
+    }
+
+    @Test
+    public void testTimeout() {
+        processor.setRenderBudget(RenderBudget.UNLIMITED.withTimeout(Duration.ofMillis(50)));
+        String template = "#foreach($a in [1..100000])#foreach($b in [1..100000])#set($x = $b)#end#end";
+        long start = System.nanoTime();
+        RenderResult result = processor.render(template, "{}", CONTEXT);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        RenderBudgetExceededException error = (RenderBudgetExceededException) result.getError();
+        assertEquals(RenderBudgetExceededException.Kind.TIMEOUT, error.getKind());
+        assertEquals(50, error.getLimit());
+        assertTrue("took " + elapsedMillis + " ms", elapsedMillis < 5000);
+    }
+
+    @Test
+    public void testBudgetNotVisibleToTemplates() {
+        processor.setRenderBudget(RenderBudget.aws());
+        assertEquals("[]", processor.process("[$!vtl.renderGuard]", "{}", CONTEXT));
+    }
+
+    @Test
+    public void testNullRestoresUnlimited() {
+        processor.setRenderBudget(RenderBudget.aws());
+        processor.setRenderBudget(null);
+        assertSame(RenderBudget.UNLIMITED, processor.getRenderBudget());
+        assertTrue(RenderBudget.UNLIMITED.withTimeout(Duration.ZERO).isUnlimited());
+    }
+
+    private static String items(int count) {
+        StringBuilder json = new StringBuilder("{\"items\":[");
+        for (int i = 0; i < count; i++) {
+            json.append(i > 0 ? "," : "").append(i);
+        }
+        return json.append("]}").toString();
+    }
+}
@@ -0,0 +1,120 @@
+package dev.vtlemulator.engine;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RenderCoalescingTest {
+    private final VTLProcessor processor = new VTLProcessor();
+
+    @Test
+    public void testDeterministicTemplates() {
+        assertTrue(isDeterministic("{\"a\": \"$input.path('$.a')\", \"b\": $input.json('$.b')}"));
+        assertTrue(isDeterministic("$context.stage $context.identity.sourceIp $context.authorizer.get('x')"));
+        assertTrue(isDeterministic("$!{context.httpMethod.toLowerCase()} $context.getStage().length()"));
+        assertTrue(isDeterministic("#set($x = $util.escapeJavaScript($input.body))$x $body"));
+        assertTrue(isDeterministic("#if($context.authorizer && !$context.identity)$context.authorizer.principalId#end"));
+
+        assertFalse(isDeterministic("$context.requestTime"));
+        assertFalse(isDeterministic("$context.getRequestTimeEpoch()"));
+        assertFalse(isDeterministic("#if($input.path('$.a'))$context.requestId#end"));
+        assertFalse(isDeterministic("$context.identity"));
+        assertFalse(isDeterministic("#set($c = $context)$c.requestTime"));
+        assertFalse(isDeterministic("$util.escapeJavaScript($input)"));
+        assertFalse(isDeterministic("$context.unknownProperty"));
+        assertFalse(isDeterministic("#evaluate('$context.requestTime')"));
+    }
+
+    @Test
+    public void testConcurrentRendersShareOneResult() throws Exception {
+        RenderCoalescer coalescer = new RenderCoalescer();
+        RenderCoalescer.Key key = new RenderCoalescer.Key("id", "template", "{}", "{}");
+        CountDownLatch joined = new CountDownLatch(3);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger evaluations = new AtomicInteger();
+        VTLMetrics metrics = new VTLMetrics() {
+            @Override
+            public void recordCacheAccess(String cache, String templateId, boolean hit) {
+                if (hit) {
+                    joined.countDown();
+                }
+            }
+        };
+        RenderResult rendered = new RenderResult("id", "output", null, null);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<RenderResult>> results = new ArrayList<>();
+            results.add(executor.submit(() -> coalescer.render(key, () -> {
+                evaluations.incrementAndGet();
+                await(release);
+                return rendered;
+            }, metrics)));
+            while (coalescer.inFlight() == 0) {
+                Thread.yield();
+            }
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> coalescer.render(key, () -> {
+                    evaluations.incrementAndGet();
+                    return new RenderResult("id", "other", null, null);
+                }, metrics)));
+            }
+            assertTrue(joined.await(5, TimeUnit.SECONDS));
+            release.countDown();
+            for (Future<RenderResult> result : results) {
+                assertSame(rendered, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, evaluations.get());
+        assertEquals(0, coalescer.inFlight());
+    }
+
+    @Test
+    public void testNonDeterministicTemplatesBypassCoalescing() {
+        List<String> accesses = new ArrayList<>();
+        processor.setMetrics(new VTLMetrics() {
+            @Override
+            public void recordCacheAccess(String cache, String templateId, boolean hit) {
+                if (VTLMetrics.RENDER_COALESCING.equals(cache)) {
+                    accesses.add(templateId);
+                }
+            }
+        });
+        processor.setRenderCoalescingEnabled(true);
+        assertTrue(processor.isRenderCoalescingEnabled());
+
+        String deterministic = "{\"a\": \"$input.path('$.a')\", \"stage\": \"$context.stage\"}";
+        String clock = "{\"a\": \"$input.path('$.a')\", \"time\": $context.requestTimeEpoch}";
+        for (int i = 0; i < 2; i++) {
+            assertEquals("{\"a\":\"x\",\"stage\":\"prod\"}",
+                    processor.render("det", deterministic, "{\"a\": \"x\"}", "{\"stage\": \"prod\"}").getOutput());
+            assertTrue(processor.render("clock", clock, "{\"a\": \"x\"}", "{}").getOutput().startsWith("{\"a\":\"x\""));
+        }
+
+        // the first render compiles the template, the second one goes through the coalescer
+        assertEquals(List.of("det"), accesses);
+        processor.setRenderCoalescingEnabled(false);
+        assertFalse(processor.isRenderCoalescingEnabled());
+    }
+
+    private boolean isDeterministic(String template) {
+        return processor.compile("t", template).isDeterministic();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package dev.vtlemulator.engine;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class RenderEventsTest {
+    private static final String TEMPLATE = "{\"name\": \"$input.path('$.name')\"}";
+
+    @Test
+    public void testEventsRecorded() throws Exception {
+        VTLProcessor processor = new VTLProcessor();
+        List<RecordedEvent> events;
+        Path file = Files.createTempFile("vtl-render", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("dev.vtlemulator.TemplateCompile").withThreshold(Duration.ZERO);
+            recording.enable("dev.vtlemulator.TemplateRender").withThreshold(Duration.ZERO);
+            recording.enable("dev.vtlemulator.InputParse").withThreshold(Duration.ZERO);
+            recording.enable("dev.vtlemulator.OutputMinify").withThreshold(Duration.ZERO);
+            recording.start();
+            processor.render("users", TEMPLATE, "{\"name\":\"John\"}", "{}");
+            processor.render("users", TEMPLATE, ByteBuffer.wrap("{\"name\":\"Zoë\"}".getBytes(StandardCharsets.UTF_8)),
+                    ByteBuffer.wrap("{}".getBytes(StandardCharsets.UTF_8)));
+            recording.stop();
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        List<RecordedEvent> compiles = byName(events, "dev.vtlemulator.TemplateCompile");
+        List<RecordedEvent> renders = byName(events, "dev.vtlemulator.TemplateRender");
+        assertEquals(1, compiles.size());
+        assertEquals("users", compiles.get(0).getString("templateId"));
+        assertEquals(TEMPLATE.length(), compiles.get(0).getLong("templateLength"));
+
+        assertEquals(2, renders.size());
+        assertFalse(renders.get(0).getBoolean("templateCacheHit"));
+        assertTrue(renders.get(1).getBoolean("templateCacheHit"));
+        assertEquals(15, renders.get(0).getLong("inputLength"));
+        // sizes are bytes for String and byte inputs alike
+        assertEquals(15, renders.get(1).getLong("inputLength"));
+        assertEquals(15, renders.get(1).getLong("outputLength"));
+        assertFalse(renders.get(0).getBoolean("error"));
+
+        assertEquals(2, byName(events, "dev.vtlemulator.InputParse").size());
+        RecordedEvent minify = byName(events, "dev.vtlemulator.OutputMinify").get(0);
+        assertTrue(minify.getBoolean("json"));
+        assertEquals(15, minify.getLong("minifiedLength"));
+    }
+
+    @Test
+    public void testRenderWithoutRecording() {
+        VTLProcessor processor = new VTLProcessor();
+        assertEquals("{\"name\":\"John\"}", processor.process(TEMPLATE, "{\"name\":\"John\"}", "{}"));
+    }
+
+    private static List<RecordedEvent> byName(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,157 @@
+package dev.vtlemulator.engine;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public class ResultCacheTest {
+    private static final String TEMPLATE = "{\"name\": \"$input.path('$.name')\", \"stage\": \"$context.stage\"}";
+
+    private final VTLProcessor processor = new VTLProcessor();
+    private final List<Boolean> lookups = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        processor.setResultCache(new ResultCache());
+        processor.setMetrics(new VTLMetrics() {
+            @Override
+            public void recordCacheAccess(String cache, String templateId, boolean hit) {
+                if (VTLMetrics.RESULT_CACHE.equals(cache)) {
+                    lookups.add(hit);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testReferencedInputs() {
+        CompiledTemplate template = processor.compile("t", "$context.stage $context.identity.sourceIp"
+                + " $input.params('id') $stageVariables.x #set($m = \"$context.apiId\")$m"
+                + " $context.authorizer.claimX $context.authorizer.get('k') $util.urlEncode('a')");
+
+        assertTrue(template.readsBody());
+        assertEquals(Set.of("apiId", "claimX", "headers", "identity", "k", "m", "params", "stage", "stageVariables"),
+                template.getContextKeys());
+        assertFalse(processor.compile("t", "$context.stage").readsBody());
+        assertTrue(processor.compile("t", "$body").readsBody());
+        assertNull(processor.compile("t", "$context.authorizer.get($input.path('$.k'))").getContextKeys());
+        assertFalse(processor.compile("t", "#set($s = \"$context.requestTime\")$s").isDeterministic());
+    }
+
+    @Test
+    public void testHitsOnlyForSameReferencedInputs() {
+        String output = render(TEMPLATE, "{\"name\": \"x\"}", "{\"stage\": \"prod\", \"requestId\": \"1\"}");
+        assertEquals("{\"name\":\"x\",\"stage\":\"prod\"}", output);
+        // the first render compiles the template, before that it is not known to be deterministic
+        assertEquals(List.of(), lookups);
+
+        assertEquals(output, render(TEMPLATE, "{\"name\": \"x\"}", "{\"stage\": \"prod\", \"requestId\": \"1\"}"));
+        assertEquals(output, render(TEMPLATE, "{\"name\": \"x\"}", "{\"requestId\": \"2\", \"stage\": \"prod\"}"));
+        assertEquals("{\"name\":\"x\",\"stage\":\"beta\"}", render(TEMPLATE, "{\"name\": \"x\"}", "{\"stage\": \"beta\"}"));
+        assertEquals("{\"name\":\"y\",\"stage\":\"prod\"}", render(TEMPLATE, "{\"name\": \"y\"}", "{\"stage\": \"prod\"}"));
+        assertEquals(List.of(false, true, false, false), lookups);
+        assertEquals(3, processor.getResultCache().size());
+    }
+
+    @Test
+    public void testTemplatesThatIgnoreTheBody() {
+        String template = "{\"stage\": \"$context.stage\"}";
+        render(template, "{\"a\": 1}", "{\"stage\": \"prod\"}");
+
+        assertEquals("{\"stage\":\"prod\"}", render(template, "{\"a\": 1}", "{\"stage\": \"prod\"}"));
+        assertEquals("{\"stage\":\"prod\"}", render(template, "{\"b\": 2}", "{\"stage\": \"prod\"}"));
+        assertTrue(processor.render(template, "{}", "not json").isError());
+        assertEquals(List.of(false, true), lookups);
+    }
+
+    @Test
+    public void testBypassedRenders() {
+        String clock = "{\"time\": $context.requestTimeEpoch}";
+        render(clock, "{}", "{}");
+        render(clock, "{}", "{}");
+        String failing = "$input.path('$.items').add(1)";
+        processor.setCompactInputEnabled(true);
+        render(failing, "{\"items\": []}", "{}");
+        assertTrue(processor.render(failing, "{\"items\": []}", "{}").isError());
+        assertTrue(processor.render(failing, "{\"items\": []}", "{}").isError());
+
+        assertEquals(List.of(false, false), lookups);
+        assertEquals(0, processor.getResultCache().size());
+        processor.setCompactInputEnabled(false);
+        assertFalse(processor.render(failing, "{\"items\": []}", "{}").isError());
+    }
+
+    @Test
+    public void testHitsAreCountedAsRenders() {
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        processor.setMetrics(metrics);
+        for (int i = 0; i < 3; i++) {
+            processor.render("t", TEMPLATE, "{\"name\": \"x\"}", "{\"stage\": \"prod\"}");
+        }
+
+        InMemoryMetrics.TemplateMetrics stats = metrics.snapshot().getTemplate("t");
+        assertEquals(3, stats.getRenders());
+        assertEquals(3 * "{\"name\":\"x\",\"stage\":\"prod\"}".length(), stats.getOutputBytes());
+        assertEquals(1, stats.getCache(VTLMetrics.RESULT_CACHE).getHits());
+    }
+
+    @Test
+    public void testWarmUpBypassesTheCache() {
+        processor.registerTemplate("t", TEMPLATE);
+        processor.getTemplateRegistry().addSample("t", "{\"name\": \"x\"}", "{\"stage\": \"prod\"}");
+        processor.setRenderCoalescingEnabled(true);
+        processor.warmUp(WarmUpOptions.DEFAULT.withMaxIterations(50));
+
+        assertEquals(List.of(), lookups);
+        assertEquals(0, processor.getResultCache().size());
+    }
+
+    @Test
+    public void testBoundsAndCorpus() throws Exception {
+        ResultCache cache = new ResultCache(2, 64);
+        processor.setResultCache(cache);
+        for (int i = 0; i < 4; i++) {
+            render("$input.path('$.n')", "{\"n\": " + i + "}", "{}");
+            render("$input.path('$.n')", "{\"n\": " + i + "}", "{}");
+        }
+        render("$input.body", "{\"long\": \"" + "x".repeat(100) + "\"}", "{}");
+        render("$input.body", "{\"long\": \"" + "x".repeat(100) + "\"}", "{}");
+        assertEquals(2, cache.size());
+
+        processor.setResultCache(new ResultCache());
+        VTLProcessor uncached = new VTLProcessor();
+        try (Stream<Path> cases = Files.list(Paths.get("src/test/resources/vtl-test-cases"))) {
+            for (Path dir : (Iterable<Path>) cases.sorted()::iterator) {
+                if (!Files.exists(dir.resolve("template.vtl"))) {
+                    continue;
+                }
+                String template = Files.readString(dir.resolve("template.vtl"));
+                String input = read(dir.resolve("input.json"));
+                String context = read(dir.resolve("context.json"));
+                String expected = uncached.process(template, input, context);
+                if (!processor.compile("t", template).isDeterministic()) {
+                    continue;
+                }
+                for (int i = 0; i < 3; i++) {
+                    assertEquals(dir.getFileName().toString(), expected, render(template, input, context));
+                }
+            }
+        }
+    }
+
+    private String render(String template, String input, String contextJson) {
+        return processor.process(template, input, contextJson);
+    }
+
+    private static String read(Path path) throws Exception {
+        return Files.exists(path) ? Files.readString(path).trim() : "{}";
+    }
+}
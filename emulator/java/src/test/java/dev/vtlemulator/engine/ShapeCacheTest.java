@@ -0,0 +1,88 @@
+package dev.vtlemulator.engine;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class ShapeCacheTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testObjectsOfOneShapeShareKeys() throws Exception {
+        ShapeCache shapes = new ShapeCache();
+        String json = "{\"photos\": [{\"id\": 1, \"title\": \"a\"}, {\"id\": 2, \"title\": \"b\"}, {\"title\": \"c\", \"id\": 3}]}";
+        Map<String, Object> first = CompactJson.readObject(objectMapper, json, shapes);
+        // a separate mapper has its own symbol table, so only the cache can make the keys identical
+        Map<String, Object> second = CompactJson.readObject(new ObjectMapper(), json, shapes);
+
+        assertEquals(objectMapper.readValue(json, Map.class), first);
+        assertEquals(first, second);
+        List<Object> photos = (List<Object>) second.get("photos");
+        assertSame(firstKey(first), firstKey(second));
+        assertSame(firstKey((Map<String, Object>) photos.get(0)), firstKey((Map<String, Object>) photos.get(1)));
+        assertEquals("title", firstKey((Map<String, Object>) photos.get(2)));
+        // photos; id, id.title; title, title.id
+        assertEquals(5, shapes.size());
+    }
+
+    @Test
+    public void testDuplicateAndLargeObjects() throws Exception {
+        ShapeCache shapes = new ShapeCache();
+        StringBuilder json = new StringBuilder("{\"k0\": 0");
+        for (int i = 1; i < 20; i++) {
+            json.append(", \"k").append(i).append("\": ").append(i);
+        }
+        json.append('}');
+        String duplicate = "{\"a\": 1, \"b\": 2, \"a\": 3}";
+
+        for (int round = 0; round < 2; round++) {
+            Map<String, Object> large = CompactJson.readObject(objectMapper, json.toString(), shapes);
+            assertEquals(objectMapper.readValue(json.toString(), Map.class), large);
+            assertEquals(19, large.get("k19"));
+            assertNull(large.get("k20"));
+            Map<String, Object> map = CompactJson.readObject(objectMapper, duplicate, shapes);
+            assertEquals(objectMapper.readValue(duplicate, Map.class), map);
+            assertEquals(new ArrayList<>(List.of("a", "b")), new ArrayList<>(map.keySet()));
+        }
+        assertEquals(22, shapes.size());
+    }
+
+    @Test
+    public void testBoundedOnAdversarialKeys() throws Exception {
+        ShapeCache shapes = new ShapeCache(100);
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            json.append(i > 0 ? "," : "").append("{\"key").append(i).append("\": ").append(i).append('}');
+        }
+        String body = "{\"items\": " + json + "], \"wide\": " + json.toString().replace("},{", ",") + "]}";
+        Map<String, Object> map = CompactJson.readObject(objectMapper, body, shapes);
+
+        assertEquals(objectMapper.readValue(body, Map.class), map);
+        assertTrue(shapes.size() <= 100);
+        shapes.clear();
+        assertEquals(0, shapes.size());
+        assertEquals(map, CompactJson.readObject(objectMapper, body, shapes));
+    }
+
+    @Test
+    public void testProcessorUsesShapeCache() {
+        VTLProcessor processor = new VTLProcessor();
+        String template = "#foreach($item in $input.path('$.items'))$item.name#end";
+        String input = "{\"items\": [{\"name\": \"a\"}, {\"name\": \"b\"}]}";
+        processor.setShapeCache(new ShapeCache());
+
+        assertEquals("ab", processor.process(template, input, "{}"));
+        assertEquals(0, processor.getShapeCache().size());
+        processor.setCompactInputEnabled(true);
+        assertEquals("ab", processor.process(template, input, "{}"));
+        assertEquals(2, processor.getShapeCache().size());
+    }
+
+    private static String firstKey(Map<String, Object> map) {
+        return map.keySet().iterator().next();
+    }
+}
@@ -0,0 +1,123 @@
+package dev.vtlemulator.engine;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.function.BooleanSupplier;
+
+public class TemplateDirectoryTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final VTLProcessor processor = new VTLProcessor();
+
+    @Test
+    public void testLoadsTestCaseLayout() throws Exception {
+        Path cases = Paths.get("src/test/resources/vtl-test-cases");
+        try (TemplateDirectory directory = new TemplateDirectory(processor, cases, 4)) {
+            int loaded = directory.start();
+
+            TemplateRegistry registry = processor.getTemplateRegistry();
+            assertTrue(loaded > 10);
+            assertEquals(loaded, registry.size());
+            assertEquals(Files.readString(cases.resolve("all-params/template.vtl")), registry.get("all-params").getSource());
+            assertEquals(1, registry.getSamples("all-params").size());
+            assertTrue(directory.getErrors().isEmpty());
+            assertTrue(processor.warmUp(WarmUpOptions.DEFAULT.withMaxIterations(100)).getIterations() > 0);
+        }
+    }
+
+    @Test
+    public void testSwapsChangedTemplates() throws Exception {
+        Path root = folder.getRoot().toPath();
+        write(root.resolve("a"), "a=$context.stage");
+        write(root.resolve("b"), "b=1");
+        TemplateRegistry registry = processor.getTemplateRegistry();
+        try (TemplateDirectory directory = new TemplateDirectory(processor, root)) {
+            assertEquals(2, directory.start());
+            CompiledTemplate first = registry.get("a");
+            assertEquals("a=prod", processor.render(first, "{}", "{\"stage\": \"prod\"}").getOutput());
+
+            write(root.resolve("a"), "a2=$context.stage");
+            await(() -> registry.get("a") != first);
+            assertEquals("a2=prod", processor.render(registry.get("a"), "{}", "{\"stage\": \"prod\"}").getOutput());
+            // renders that picked up the previous version still finish with it
+            assertEquals("a=prod", processor.render(first, "{}", "{\"stage\": \"prod\"}").getOutput());
+
+            CompiledTemplate second = registry.get("a");
+            write(root.resolve("a"), "#if(");
+            await(() -> directory.getErrors().containsKey("a"));
+            assertSame(second, registry.get("a"));
+
+            write(root.resolve("c"), "c=1");
+            await(() -> registry.get("c") != null);
+            Files.delete(root.resolve("b/template.vtl"));
+            await(() -> registry.get("b") == null);
+
+            write(root.resolve("a"), "a3");
+            await(() -> !directory.getErrors().containsKey("a"));
+            assertEquals("a3", processor.render(registry.get("a"), "{}", "{}").getOutput());
+            assertTrue(directory.getReloads() >= 5);
+        }
+    }
+
+    @Test
+    public void testStartCanBeRetriedAfterAFailure() throws Exception {
+        Path root = folder.getRoot().toPath().resolve("templates");
+        try (TemplateDirectory directory = new TemplateDirectory(processor, root)) {
+            try {
+                directory.start();
+                fail("expected NoSuchFileException");
+            } catch (NoSuchFileException e) {
+                // expected
+            }
+            directory.close();
+
+            write(root.resolve("a"), "a=1");
+            assertEquals(1, directory.start());
+            assertEquals("a=1", processor.render(processor.getTemplateRegistry().get("a"), "{}", "{}").getOutput());
+        }
+    }
+
+    @Test
+    public void testRestartsAfterClose() throws Exception {
+        Path root = folder.getRoot().toPath();
+        write(root.resolve("a"), "a=1");
+        TemplateRegistry registry = processor.getTemplateRegistry();
+        try (TemplateDirectory directory = new TemplateDirectory(processor, root)) {
+            assertEquals(1, directory.start());
+            directory.close();
+            directory.close();
+
+            write(root.resolve("a"), "a=2");
+            assertEquals(1, directory.start());
+            assertEquals("a=2", processor.render(registry.get("a"), "{}", "{}").getOutput());
+            write(root.resolve("a"), "a=3");
+            await(() -> "a=3".equals(registry.get("a").getSource()));
+            await(() -> directory.getReloads() > 0);
+        }
+    }
+
+    private static void write(Path dir, String template) throws Exception {
+        Files.createDirectories(dir);
+        // written next to it and moved in, like editors and deploy tools do
+        Path temp = Files.writeString(dir.resolve("template.vtl.tmp"), template);
+        Files.move(temp, dir.resolve(TemplateDirectory.TEMPLATE_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 30_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue("timed out", System.nanoTime() - deadline < 0);
+            Thread.sleep(10);
+        }
+    }
+}
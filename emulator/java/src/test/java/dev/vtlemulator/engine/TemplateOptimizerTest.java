@@ -0,0 +1,99 @@
+package dev.vtlemulator.engine;
+
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.context.InternalContextAdapter;
+import org.apache.velocity.context.InternalContextAdapterImpl;
+import org.apache.velocity.runtime.parser.node.SimpleNode;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TemplateOptimizerTest {
+    private static final String TEMPLATE = "#set($items = $input.path('$.items'))\n"
+            + "[\n"
+            + "#foreach($item in $items)\n"
+            + "  {\"id\": \"$item.id\", \"x\": $input.json('$.x'), \"y\": $input.json(\"$.x\"),"
+            + " \"e\": \"$util.escapeJavaScript('a\"b')\", \"n\": $input.path('$.items').size()}#if($foreach.hasNext),#end\n"
+            + "#end\n"
+            + "]";
+    private static final String INPUT = "{\"items\":[{\"id\":1},{\"id\":2},{\"id\":3}],\"x\":{\"z\":5}}";
+    private static final String CONTEXT = "{}";
+
+    private VTLProcessor processor;
+
+    @Before
+    public void setUp() {
+        processor = new VTLProcessor();
+    }
+
+    @Test
+    public void testMemoizesConstantCalls() {
+        assertEquals(5, processor.compile("t", TEMPLATE).getMemoizedCalls());
+        assertEquals(1, processor.compile("t", "$!{input.path('$.a')}").getMemoizedCalls());
+        assertEquals(1, processor.compile("t", "$util.base64Encode(\"$.a\")").getMemoizedCalls());
+    }
+
+    @Test
+    public void testSkipsNonConstantAndUnknownCalls() {
+        assertEquals(0, processor.compile("t", "#set($p = '$.a')$input.path($p)").getMemoizedCalls());
+        assertEquals(0, processor.compile("t", "$input.path(\"$p\")").getMemoizedCalls());
+        assertEquals(0, processor.compile("t", "$context.requestId $util.toString('a')").getMemoizedCalls());
+        assertEquals(0, processor.compile("t", "$other.path('$.a')").getMemoizedCalls());
+    }
+
+    @Test
+    public void testSkipsTemplatesThatMayChangeResults() {
+        assertEquals(0, processor.compile("t", "$input.path('$').put('a', 1)$input.path('$.a')").getMemoizedCalls());
+        assertEquals(0, processor.compile("t", "#set($m = $input.path('$'))#set($m.a = 1)$input.path('$.a')").getMemoizedCalls());
+        assertEquals(0, processor.compile("t", "#set($input = $other)$input.path('$.a')").getMemoizedCalls());
+        assertEquals(0, processor.compile("t", "#foreach($util in $list)$util.urlEncode('a')#end").getMemoizedCalls());
+        assertEquals(0, processor.compile("t", "#macro(m)x#end$input.path('$.a')").getMemoizedCalls());
+    }
+
+    @Test
+    public void testOutputUnchanged() {
+        String optimized = processor.process(TEMPLATE, INPUT, CONTEXT);
+        processor.setTemplateOptimizationEnabled(false);
+        assertEquals(0, processor.getTemplateCache().size());
+        assertEquals(optimized, processor.process(TEMPLATE, INPUT, CONTEXT));
+        assertTrue(optimized, optimized.contains("{\"id\":\"3\",\"x\":{\"z\":5},\"y\":{\"z\":5},\"e\":\"a\\\"b\",\"n\":3}"));
+    }
+
+    @Test
+    public void testCallRunsOncePerRender() {
+        int[] calls = new int[1];
+        SimpleNode method = new SimpleNode(0) {
+            @Override
+            public Object execute(Object o, InternalContextAdapter context) {
+                calls[0]++;
+                return calls[0] == 1 ? null : "later";
+            }
+        };
+        MemoizedCallNode node = new MemoizedCallNode(method, "input.path('$.a')");
+        Object receiver = new Object();
+
+        InternalContextAdapter context = new InternalContextAdapterImpl(new VelocityContext());
+        context.put(CallMemo.CONTEXT_KEY, new CallMemo());
+        assertNull(node.execute(receiver, context));
+        assertNull(node.execute(receiver, context));
+        assertEquals(1, calls[0]);
+
+        // another receiver, or no memo in the context (not rendered by VTLProcessor): no reuse
+        assertEquals("later", node.execute(new Object(), context));
+        assertEquals("later", node.execute(receiver, new InternalContextAdapterImpl(new VelocityContext())));
+        assertEquals(3, calls[0]);
+    }
+
+    @Test
+    public void testMergesAdjacentStaticText() {
+        String template = "{\n  ## comment\n  \"a\": #[[\"$raw\"]]#,\n#if(true)\n  \"b\": 1\n  ## c\n  ,\"c\": 2\n#end\n}";
+        String optimized = processor.process(template, "{}", CONTEXT);
+        processor.setTemplateOptimizationEnabled(false);
+        assertEquals(processor.process(template, "{}", CONTEXT), optimized);
+        assertEquals("{\"a\":\"$raw\",\"b\":1,\"c\":2}", optimized);
+
+        SimpleNode root = new SimpleNode(0);
+        root.jjtAddChild(new SimpleNode(0), 0);
+        assertEquals(0, TemplateOptimizer.mergeStaticText(root));
+    }
+}
@@ -0,0 +1,108 @@
+package dev.vtlemulator.engine;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TemplateProfilerTest {
+    private static final String TEMPLATE = "#set($items = $input.path('$.items'))\n"
+            + "[\n"
+            + "#foreach($item in $items)\n"
+            + "  {\"id\": \"$item.id\", \"x\": $input.json('$.x')}#if($foreach.hasNext),#end\n"
+            + "#end\n"
+            + "]";
+    private static final String INPUT = "{\"items\":[{\"id\":1},{\"id\":2},{\"id\":3}],\"x\":5}";
+    private static final String CONTEXT = "{}";
+
+    private VTLProcessor processor;
+
+    @Before
+    public void setUp() {
+        processor = new VTLProcessor();
+    }
+
+    @Test
+    public void testOutputMatchesProcess() {
+        TemplateProfile profile = processor.profile(TEMPLATE, INPUT, CONTEXT);
+        assertEquals(processor.process(TEMPLATE, INPUT, CONTEXT), profile.getResult().getOutput());
+        assertFalse(profile.getResult().isError());
+        assertEquals(1, profile.getIterations());
+    }
+
+    @Test
+    public void testCountsInvocationsPerSite() {
+        TemplateProfile profile = processor.profile(TEMPLATE, INPUT, CONTEXT, 2);
+
+        TemplateProfile.Entry foreach = find(profile, "#foreach", "#foreach($item in $items)");
+        assertEquals(2, foreach.getInvocations());
+        assertEquals(3, foreach.getLine());
+        assertEquals(1, foreach.getColumn());
+
+        TemplateProfile.Entry json = find(profile, "method", "$input.json('$.x')");
+        assertEquals(6, json.getInvocations());
+        assertEquals(4, json.getLine());
+
+        TemplateProfile.Entry path = find(profile, "method", "$input.path('$.items')");
+        assertEquals(2, path.getInvocations());
+        assertEquals(1, path.getLine());
+    }
+
+    @Test
+    public void testSelfTimeExcludesNestedSites() {
+        TemplateProfile profile = processor.profile(TEMPLATE, INPUT, CONTEXT, 3);
+        for (TemplateProfile.Entry entry : profile.getEntries()) {
+            assertTrue(entry.toString(), entry.getSelfNanos() >= 0);
+            assertTrue(entry.toString(), entry.getSelfNanos() <= entry.getTotalNanos());
+        }
+        TemplateProfile.Entry foreach = find(profile, "#foreach", "#foreach($item in $items)");
+        TemplateProfile.Entry json = find(profile, "method", "$input.json('$.x')");
+        assertTrue(foreach.getTotalNanos() >= json.getTotalNanos());
+        assertTrue(profile.getEntries().get(0).getTotalNanos() >= profile.getEntries().get(1).getTotalNanos());
+    }
+
+    @Test
+    public void testFoldedStacks() {
+        TemplateProfile profile = processor.profile(TEMPLATE, INPUT, CONTEXT);
+        String folded = profile.toFoldedStacks();
+        String prefix = profile.getTemplateId() + ";L3 #foreach($item in $items);L4 $input.json('$.x')";
+        boolean found = false;
+        for (String line : folded.split("\n")) {
+            assertTrue(line, line.matches("[^ ].* \\d+"));
+            assertTrue(line, line.startsWith(profile.getTemplateId()));
+            found |= line.startsWith(prefix);
+        }
+        assertTrue(folded, found);
+    }
+
+    @Test
+    public void testFlatReport() {
+        TemplateProfile profile = processor.profile(TEMPLATE, INPUT, CONTEXT);
+        String report = profile.toFlatReport();
+        assertTrue(report, report.contains("#foreach($item in $items)"));
+        assertTrue(report, report.contains("3:1"));
+    }
+
+    @Test
+    public void testInvalidTemplate() {
+        TemplateProfile profile = processor.profile("#foreach($x in", INPUT, CONTEXT);
+        assertTrue(profile.getResult().isError());
+        assertTrue(profile.getResult().getOutput().startsWith("Error processing template:"));
+        assertTrue(profile.getEntries().isEmpty());
+    }
+
+    @Test
+    public void testProfilingDoesNotAffectCachedTemplate() {
+        processor.profile(TEMPLATE, INPUT, CONTEXT);
+        assertEquals(0, processor.getTemplateCache().size());
+        assertEquals(processor.process(TEMPLATE, INPUT, CONTEXT), processor.profile(TEMPLATE, INPUT, CONTEXT).getResult().getOutput());
+    }
+
+    private static TemplateProfile.Entry find(TemplateProfile profile, String kind, String label) {
+        for (TemplateProfile.Entry entry : profile.getEntries()) {
+            if (entry.getKind().equals(kind) && entry.getLabel().equals(label)) {
+                return entry;
+            }
+        }
+        throw new AssertionError("No " + kind + " " + label + " in " + profile.getEntries());
+    }
+}
@@ -0,0 +1,84 @@
+package dev.vtlemulator.engine;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+public class TextSourceTest {
+    private static final String TEMPLATE = "{\"name\": \"$input.path('$.name')\", \"price\": $input.path('$.price'),"
+            + " \"all\": $input.json('$'), \"stage\": \"$context.stage\"}";
+    private static final String INPUT = "{\"name\": \"Zoë ☕ 😀\", \"price\": 10.50}";
+    private static final String CONTEXT = "{\"stage\": \"prod\"}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testBytesRenderLikeStrings() {
+        VTLProcessor processor = new VTLProcessor();
+        byte[] expected = processor.process(TEMPLATE, INPUT, CONTEXT).getBytes(StandardCharsets.UTF_8);
+
+        assertArrayEquals(expected, processor.process(TEMPLATE, utf8(INPUT), utf8(CONTEXT)));
+        processor.setCompactInputEnabled(true);
+        assertArrayEquals(expected, processor.process(TEMPLATE, utf8(INPUT), utf8(CONTEXT)));
+        processor.setLazyNumbersEnabled(true);
+        assertEquals(new String(expected, StandardCharsets.UTF_8).replace("10.5", "10.50"),
+                new String(processor.process(TEMPLATE, utf8(INPUT), utf8(CONTEXT)), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testBuffersAreReadWithoutMovingThem() {
+        VTLProcessor processor = new VTLProcessor();
+        byte[] expected = processor.process(TEMPLATE, INPUT, CONTEXT).getBytes(StandardCharsets.UTF_8);
+        byte[] padded = utf8("xx" + INPUT + "yy");
+        ByteBuffer heap = ByteBuffer.wrap(padded, 2, padded.length - 4).slice();
+        ByteBuffer direct = ByteBuffer.allocateDirect(64);
+        direct.put(utf8(CONTEXT)).flip();
+
+        ByteBuffer output = processor.process(TEMPLATE, heap, direct);
+
+        assertArrayEquals(expected, toArray(output));
+        assertEquals(0, heap.position());
+        assertEquals(0, direct.position());
+        RenderResult result = processor.render("id", TEMPLATE, heap, direct);
+        assertArrayEquals(expected, result.getOutputBytes());
+        assertEquals(new String(expected, StandardCharsets.UTF_8), result.getOutput());
+    }
+
+    @Test
+    public void testBodyIsDecodedOnlyWhenRead() throws Exception {
+        TextSource body = TextSource.of(utf8(INPUT));
+        Map<String, Object> input = body.readMap(objectMapper);
+        InputFunctions functions = new InputFunctions(Map.of(), input, body, objectMapper, true, false);
+
+        assertEquals(10.5, functions.path("$.price"));
+        assertEquals(objectMapper.writeValueAsString(input), functions.json("$"));
+        assertFalse(body.isDecoded());
+        assertEquals(INPUT, functions.body());
+        assertTrue(body.isDecoded());
+    }
+
+    @Test
+    public void testBodyAndErrorsWithBytes() {
+        VTLProcessor processor = new VTLProcessor();
+        String template = "$body|$input.body|#set($body = 'x')$body";
+
+        assertEquals("not json|not json|x", new String(processor.process(template, utf8("not json"), utf8("{}")),
+                StandardCharsets.UTF_8));
+        assertEquals(processor.process(template, "", "not json"),
+                new String(processor.process(template, new byte[0], utf8("not json")), StandardCharsets.UTF_8));
+    }
+
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
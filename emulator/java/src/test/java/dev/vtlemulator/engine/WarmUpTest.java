@@ -0,0 +1,88 @@
+package dev.vtlemulator.engine;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.time.Duration;
+
+public class WarmUpTest {
+    private static final String TEMPLATE = "{\"name\": \"$input.path('$.name')\", \"stage\": \"$context.stage\"}";
+
+    private VTLProcessor processor;
+
+    @Before
+    public void setUp() {
+        processor = new VTLProcessor();
+    }
+
+    @Test
+    public void testRegisterTemplate() {
+        CompiledTemplate first = processor.registerTemplate("users", TEMPLATE);
+        assertSame(first, processor.getTemplateRegistry().get("users"));
+        assertEquals("users", first.getId());
+
+        CompiledTemplate second = processor.registerTemplate("users", "{}");
+        assertSame(second, processor.getTemplateRegistry().get("users"));
+        assertEquals(1, processor.getTemplateRegistry().size());
+    }
+
+    @Test
+    public void testNothingRegistered() {
+        try {
+            processor.warmUp();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertFalse(processor.isWarmedUp());
+        }
+    }
+
+    @Test
+    public void testIterationLimit() {
+        processor.registerTemplate("users", TEMPLATE);
+        WarmUpResult result = processor.warmUp(WarmUpOptions.DEFAULT
+                .withMaxIterations(250).withWindowSize(100).withStopWhenStable(false));
+
+        assertEquals(250, result.getIterations());
+        assertEquals(2, result.getWindowMedians().size());
+        assertEquals(0, result.getErrors());
+        assertTrue(result.getFinalMedianNanos() > 0);
+    }
+
+    @Test
+    public void testStabilizes() {
+        processor.registerTemplate("users", TEMPLATE);
+        processor.getTemplateRegistry().addSample("users", "{\"name\":\"John\"}", "{\"stage\":\"prod\"}");
+        processor.getTemplateRegistry().addSample("users", "{\"name\":\"Jane\"}", "{\"stage\":\"dev\"}");
+
+        // Generous tolerance, so the test does not depend on how quiet the machine is
+        WarmUpResult result = processor.warmUp(WarmUpOptions.DEFAULT
+                .withWindowSize(50).withTolerance(10).withMaxDuration(Duration.ofSeconds(20)));
+
+        assertTrue(result.toString(), result.isStable());
+        assertTrue(processor.isWarmedUp());
+        assertEquals(150, result.getStableAfterIterations());
+        assertEquals(result.getStableAfterIterations(), result.getIterations());
+    }
+
+    @Test
+    public void testDurationLimit() {
+        processor.registerTemplate("users", TEMPLATE);
+        WarmUpResult result = processor.warmUp(WarmUpOptions.DEFAULT
+                .withMaxIterations(0).withMaxDuration(Duration.ofMillis(100)).withTolerance(0).withWindowSize(1_000_000));
+
+        assertFalse(result.isStable());
+        assertFalse(processor.isWarmedUp());
+        assertEquals(-1, result.getStableAfterIterations());
+        assertTrue(result.getIterations() > 0);
+        assertTrue(result.getElapsed().toMillis() >= 100);
+    }
+
+    @Test
+    public void testErrorsCounted() {
+        processor.registerTemplate("broken", "$input.path('$.name').noSuchMethod()");
+        processor.getTemplateRegistry().addSample("broken", "{\"name\":\"x\"}", "not json");
+        WarmUpResult result = processor.warmUp(WarmUpOptions.DEFAULT.withMaxIterations(10).withStopWhenStable(false));
+        assertEquals(10, result.getErrors());
+    }
+}